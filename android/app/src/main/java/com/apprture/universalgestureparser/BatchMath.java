@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * Batch versions of the {@link com.apprture.universalgestureparser.SomeMath} operations, for
+ * offline analysis of whole strokes held in primitive coordinate arrays.
+ * <p>
+ * Each kernel is a single counted loop with no calls, allocation or cross-element
+ * dependencies, the shape the JIT (or ART's optimizing compiler) unrolls on its own.
+ * <p>
+ * Tolerance: every element is computed with exactly the same sequence of float operations
+ * as the corresponding {@link com.apprture.universalgestureparser.SomeMath} call, so the results
+ * are bit-for-bit identical to the scalar path.
+ *
+ * @author Herb Jellinek
+ */
+public class BatchMath {
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private BatchMath() {
+    }
+
+    /**
+     * Compute the vectors between consecutive points.  <tt>count</tt> points produce
+     * <tt>count - 1</tt> vectors.
+     * @param xs the X coordinates of the points
+     * @param ys the Y coordinates of the points
+     * @param offset the index of the first point
+     * @param count the number of points
+     * @param Δxs receives the X components of the vectors, starting at index 0
+     * @param Δys receives the Y components of the vectors, starting at index 0
+     * @return the number of vectors computed
+     */
+    public static int differences(float[] xs, float[] ys, int offset, int count,
+                                  float[] Δxs, float[] Δys) {
+        int n = count - 1;
+        for (int i = 0; i < n; i++) {
+            int p = offset + i;
+            Δxs[i] = xs[p + 1] - xs[p];
+            Δys[i] = ys[p + 1] - ys[p];
+        }
+        return n < 0 ? 0 : n;
+    }
+
+    /**
+     * Compute the length of each vector.
+     * @param Δxs the X components of the vectors
+     * @param Δys the Y components of the vectors
+     * @param n the number of vectors
+     * @param out receives the lengths
+     */
+    public static void lengths(float[] Δxs, float[] Δys, int n, float[] out) {
+        for (int i = 0; i < n; i++) {
+            out[i] = (float)Math.sqrt(Δxs[i] * Δxs[i] + Δys[i] * Δys[i]);
+        }
+    }
+
+}
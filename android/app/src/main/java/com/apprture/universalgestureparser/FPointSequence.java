@@ -0,0 +1,47 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.List;
+
+/**
+ * A {@link com.apprture.universalgestureparser.PointSequence} backed by a list of
+ * {@link com.apprture.universalgestureparser.FPoint}s.  The list should support fast random
+ * access, e.g. an {@link java.util.ArrayList}.
+ *
+ * @author Herb Jellinek
+ */
+public class FPointSequence implements PointSequence {
+
+    /**
+     * The points.
+     */
+    private List<FPoint> mPoints;
+
+    /**
+     * Create a sequence that reads the given list.  The list is not copied.
+     * @param points the points
+     */
+    public FPointSequence(List<FPoint> points) {
+        mPoints = points;
+    }
+
+    @Override
+    public int size() {
+        return mPoints.size();
+    }
+
+    @Override
+    public float getX(int index) {
+        return mPoints.get(index).getX();
+    }
+
+    @Override
+    public float getY(int index) {
+        return mPoints.get(index).getY();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.AbstractList;
+
+/**
+ * A list that holds at most a fixed number of points.  Adding a point to a full window drops
+ * the oldest one.  Backed by a circular array, so adding and indexing take constant time.
+ *
+ * @author Herb Jellinek
+ */
+public class FPointWindow extends AbstractList<FPoint> {
+
+    private final FPoint[] mPoints;
+
+    /**
+     * The index in mPoints of the oldest point.
+     */
+    private int mStart;
+
+    private int mSize;
+
+    /**
+     * Create an empty window.
+     * @param capacity the largest number of points to hold
+     */
+    public FPointWindow(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        mPoints = new FPoint[capacity];
+    }
+
+    @Override
+    public boolean add(FPoint point) {
+        if (mSize < mPoints.length) {
+            mPoints[(mStart + mSize) % mPoints.length] = point;
+            mSize++;
+        } else {
+            mPoints[mStart] = point;
+            mStart = (mStart + 1) % mPoints.length;
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public FPoint get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + mSize);
+        }
+        return mPoints[(mStart + index) % mPoints.length];
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+}
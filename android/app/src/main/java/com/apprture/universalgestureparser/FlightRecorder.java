@@ -0,0 +1,341 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Remembers the last few strokes the parser saw, so that a misrecognized gesture can be
+ * examined after the fact.
+ * <p>
+ * Everything is kept in fixed-size primitive ring buffers allocated up front: one ring of raw
+ * samples (every touch sample, before the movement filter) and one ring of stroke records (the
+ * classifier's features and the {@link com.apprture.universalgestureparser.GestureType} it
+ * produced).  Recording never allocates, so the recorder can stay on in release builds.  When a
+ * ring fills up, the oldest entries are overwritten; a stroke whose early samples have been
+ * overwritten is dumped without them.
+ * <p>
+ * Only completed strokes are dumped.  Methods are synchronized so a dump can be taken from any
+ * thread; a dump copies what it needs with the lock held and writes it out afterwards, so
+ * recording isn't held up by the output stream.  Dumping allocates.
+ *
+ * @author Herb Jellinek
+ */
+public class FlightRecorder {
+
+    /**
+     * Identifies a binary dump: "UGFR".
+     */
+    public static final int MAGIC = 0x55474652;
+
+    /**
+     * The version of the binary dump format.
+     */
+    public static final int VERSION = 1;
+
+    private static final int DEFAULT_STROKES = 32;
+
+    private static final int DEFAULT_SAMPLES = 8192;
+
+    private static final GestureType[] TYPES = GestureType.values();
+
+    private final float[] mSampleXs;
+
+    private final float[] mSampleYs;
+
+    private final long[] mSampleTimes;
+
+    /**
+     * The number of samples ever recorded.  Sample n lives at n % capacity.
+     */
+    private long mSampleCount;
+
+    private final long[] mStrokeFirstSample;
+
+    private final int[] mStrokeSampleCount;
+
+    private final long[] mStrokeStartTime;
+
+    private final long[] mStrokeEndTime;
+
+    private final int[] mStrokeType;
+
+    private final int[] mStrokeReverses;
+
+    private final float[] mStrokeSumOfAngles;
+
+    private final int[] mStrokeNumVectors;
+
+    /**
+     * The number of strokes ever completed.  Stroke n lives at n % capacity.
+     */
+    private long mStrokeCount;
+
+    /**
+     * The first sample of the stroke in progress, or -1 if there isn't one.
+     */
+    private long mCurrentFirstSample = -1;
+
+    private long mCurrentStartTime;
+
+    /**
+     * Create a recorder with the default capacity.
+     */
+    public FlightRecorder() {
+        this(DEFAULT_STROKES, DEFAULT_SAMPLES);
+    }
+
+    /**
+     * Create a recorder.
+     * @param strokes the number of strokes to remember
+     * @param samples the number of raw samples to remember, shared among the strokes
+     */
+    public FlightRecorder(int strokes, int samples) {
+        if (strokes <= 0 || samples <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        mSampleXs = new float[samples];
+        mSampleYs = new float[samples];
+        mSampleTimes = new long[samples];
+        mStrokeFirstSample = new long[strokes];
+        mStrokeSampleCount = new int[strokes];
+        mStrokeStartTime = new long[strokes];
+        mStrokeEndTime = new long[strokes];
+        mStrokeType = new int[strokes];
+        mStrokeReverses = new int[strokes];
+        mStrokeSumOfAngles = new float[strokes];
+        mStrokeNumVectors = new int[strokes];
+    }
+
+    /**
+     * Start recording a stroke.  An unfinished stroke in progress is abandoned.
+     * @param time the time the stroke started, in milliseconds
+     */
+    public synchronized void beginStroke(long time) {
+        mCurrentFirstSample = mSampleCount;
+        mCurrentStartTime = time;
+    }
+
+    /**
+     * Record a raw sample of the stroke in progress.  Ignored if no stroke is in progress.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param time the time of the sample, in milliseconds
+     */
+    public synchronized void addSample(float x, float y, long time) {
+        if (mCurrentFirstSample < 0) {
+            return;
+        }
+        int i = (int)(mSampleCount % mSampleXs.length);
+        mSampleXs[i] = x;
+        mSampleYs[i] = y;
+        mSampleTimes[i] = time;
+        mSampleCount++;
+    }
+
+    /**
+     * Record a chunk of raw samples of the stroke in progress.  Ignored if no stroke is in
+     * progress.
+     * @param xs the X coordinates
+     * @param ys the Y coordinates
+     * @param times the sample times, in milliseconds
+     * @param offset the index of the first sample in the arrays
+     * @param length the number of samples
+     */
+    public synchronized void addSamples(float[] xs, float[] ys, long[] times, int offset,
+                                        int length) {
+        if (mCurrentFirstSample < 0) {
+            return;
+        }
+        final int capacity = mSampleXs.length;
+        int i = (int)(mSampleCount % capacity);
+        for (int j = offset; j < offset + length; j++) {
+            mSampleXs[i] = xs[j];
+            mSampleYs[i] = ys[j];
+            mSampleTimes[i] = times[j];
+            if (++i == capacity) {
+                i = 0;
+            }
+        }
+        mSampleCount += length;
+    }
+
+    /**
+     * Finish the stroke in progress.  Ignored if no stroke is in progress.
+     * @param type the gesture the stroke was recognized as
+     * @param time the time the stroke ended, in milliseconds
+     * @param classifier the classifier that recognized it, for its features
+     */
+    public synchronized void endStroke(GestureType type, long time, GestureClassifier classifier) {
+        if (mCurrentFirstSample < 0) {
+            return;
+        }
+        int i = (int)(mStrokeCount % mStrokeType.length);
+        mStrokeFirstSample[i] = mCurrentFirstSample;
+        mStrokeSampleCount[i] = (int)(mSampleCount - mCurrentFirstSample);
+        mStrokeStartTime[i] = mCurrentStartTime;
+        mStrokeEndTime[i] = time;
+        mStrokeType[i] = type.ordinal();
+        mStrokeReverses[i] = classifier.getDotProductReverses();
+        mStrokeSumOfAngles[i] = classifier.getSumOfAngles();
+        mStrokeNumVectors[i] = classifier.getNumVectors();
+        mStrokeCount++;
+        mCurrentFirstSample = -1;
+    }
+
+    /**
+     * Write the remembered strokes, oldest first, in a readable form.  Only the copying is done
+     * with the recorder locked, so writing to a slow stream doesn't hold up recording.
+     * @param out where to write them
+     */
+    public void dump(PrintWriter out) {
+        Snapshot snapshot = snapshot();
+        for (int k = 0; k < snapshot.mTypes.length; k++) {
+            out.println("stroke " + (snapshot.mFirstStroke + k) + " " + TYPES[snapshot.mTypes[k]] +
+                        " start=" + snapshot.mStartTimes[k] +
+                        " duration=" + (snapshot.mEndTimes[k] - snapshot.mStartTimes[k]) +
+                        " samples=" + snapshot.mSampleCounts[k] +
+                        " retained=" + snapshot.mXs[k].length +
+                        " reverses=" + snapshot.mReverses[k] +
+                        " angles=" + snapshot.mSumsOfAngles[k] +
+                        " vectors=" + snapshot.mNumVectors[k]);
+            for (int j = 0; j < snapshot.mXs[k].length; j++) {
+                out.println("  " + snapshot.mXs[k][j] + " " + snapshot.mYs[k][j] + " " +
+                            snapshot.mTimes[k][j]);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Write the remembered strokes, oldest first, in a compact binary form: {@link #MAGIC},
+     * {@link #VERSION} and the stroke count as <tt>int</tt>s, then for each stroke its start
+     * and end times (<tt>long</tt>), type ordinal, reverses (<tt>int</tt>), sum of angles
+     * (<tt>float</tt>), number of vectors and number of retained samples (<tt>int</tt>), followed
+     * by each sample's X and Y (<tt>float</tt>) and time (<tt>long</tt>).  Only the copying is
+     * done with the recorder locked, so writing to a slow stream doesn't hold up recording.
+     * @param out where to write them
+     * @throws IOException if writing fails
+     */
+    public void dump(DataOutputStream out) throws IOException {
+        Snapshot snapshot = snapshot();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.mTypes.length);
+        for (int k = 0; k < snapshot.mTypes.length; k++) {
+            out.writeLong(snapshot.mStartTimes[k]);
+            out.writeLong(snapshot.mEndTimes[k]);
+            out.writeInt(snapshot.mTypes[k]);
+            out.writeInt(snapshot.mReverses[k]);
+            out.writeFloat(snapshot.mSumsOfAngles[k]);
+            out.writeInt(snapshot.mNumVectors[k]);
+            out.writeInt(snapshot.mXs[k].length);
+            for (int j = 0; j < snapshot.mXs[k].length; j++) {
+                out.writeFloat(snapshot.mXs[k][j]);
+                out.writeFloat(snapshot.mYs[k][j]);
+                out.writeLong(snapshot.mTimes[k][j]);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Copy the remembered strokes, oldest first, so they can be written without the lock.
+     * @return the copy
+     */
+    private synchronized Snapshot snapshot() {
+        long first = Math.max(0, mStrokeCount - mStrokeType.length);
+        Snapshot snapshot = new Snapshot(first, (int)(mStrokeCount - first));
+        for (int k = 0; k < snapshot.mTypes.length; k++) {
+            int i = (int)((first + k) % mStrokeType.length);
+            snapshot.mStartTimes[k] = mStrokeStartTime[i];
+            snapshot.mEndTimes[k] = mStrokeEndTime[i];
+            snapshot.mTypes[k] = mStrokeType[i];
+            snapshot.mSampleCounts[k] = mStrokeSampleCount[i];
+            snapshot.mReverses[k] = mStrokeReverses[i];
+            snapshot.mSumsOfAngles[k] = mStrokeSumOfAngles[i];
+            snapshot.mNumVectors[k] = mStrokeNumVectors[i];
+            long firstSample = firstRetainedSample(i);
+            int retained = (int)(mStrokeFirstSample[i] + mStrokeSampleCount[i] - firstSample);
+            float[] xs = new float[retained];
+            float[] ys = new float[retained];
+            long[] times = new long[retained];
+            for (int j = 0; j < retained; j++) {
+                int slot = (int)((firstSample + j) % mSampleXs.length);
+                xs[j] = mSampleXs[slot];
+                ys[j] = mSampleYs[slot];
+                times[j] = mSampleTimes[slot];
+            }
+            snapshot.mXs[k] = xs;
+            snapshot.mYs[k] = ys;
+            snapshot.mTimes[k] = times;
+        }
+        return snapshot;
+    }
+
+    /**
+     * A copy of the remembered strokes, taken for a dump.
+     */
+    private static class Snapshot {
+
+        /**
+         * The number of the oldest stroke.
+         */
+        private final long mFirstStroke;
+
+        private final long[] mStartTimes;
+
+        private final long[] mEndTimes;
+
+        private final int[] mTypes;
+
+        private final int[] mSampleCounts;
+
+        private final int[] mReverses;
+
+        private final float[] mSumsOfAngles;
+
+        private final int[] mNumVectors;
+
+        /*
+         * The retained samples of each stroke.
+         */
+
+        private final float[][] mXs;
+
+        private final float[][] mYs;
+
+        private final long[][] mTimes;
+
+        Snapshot(long firstStroke, int strokes) {
+            mFirstStroke = firstStroke;
+            mStartTimes = new long[strokes];
+            mEndTimes = new long[strokes];
+            mTypes = new int[strokes];
+            mSampleCounts = new int[strokes];
+            mReverses = new int[strokes];
+            mSumsOfAngles = new float[strokes];
+            mNumVectors = new int[strokes];
+            mXs = new float[strokes][];
+            mYs = new float[strokes][];
+            mTimes = new long[strokes][];
+        }
+
+    }
+
+    /**
+     * Return the first sample of a stroke that hasn't been overwritten.
+     * @param i the stroke's slot in the stroke ring
+     * @return the sample number
+     */
+    private long firstRetainedSample(int i) {
+        long endSample = mStrokeFirstSample[i] + mStrokeSampleCount[i];
+        return Math.min(endSample, Math.max(mStrokeFirstSample[i], mSampleCount - mSampleXs.length));
+    }
+
+}
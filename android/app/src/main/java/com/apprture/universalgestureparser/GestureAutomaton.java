@@ -0,0 +1,120 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.List;
+
+/**
+ * A compiled {@link com.apprture.universalgestureparser.GestureGrammar}: a deterministic
+ * automaton whose transitions are a table indexed by state and
+ * {@link com.apprture.universalgestureparser.GestureType} ordinal.  Feeding it a gesture costs
+ * one table lookup, however many rules the grammar has.
+ * <p>
+ * Not thread-safe; feed it from the thread that receives the gestures.
+ *
+ * @param <C> the type of the commands
+ * @author Herb Jellinek
+ */
+public class GestureAutomaton<C> {
+
+    /**
+     * transitions[state * mNumTypes + ordinal] is the next state.
+     */
+    private final int[] mTransitions;
+
+    /**
+     * The command recognized on entering each state, or null.
+     */
+    private final Object[] mOutputs;
+
+    /**
+     * The length of the sequence that leads to each state in the trie of rules.
+     */
+    private final int[] mDepths;
+
+    private final int mNumTypes;
+
+    private final long mTimeoutMillis;
+
+    private int mState;
+
+    private long mLastTime;
+
+    /**
+     * Create an automaton.  Use {@link GestureGrammar#compile(long)} rather than calling this.
+     * @param transitions the transition table
+     * @param outputs the command for each state
+     * @param depths the depth of each state in the trie of rules
+     * @param numTypes the number of gesture types
+     * @param timeoutMillis the longest pause allowed between gestures, or 0 for no limit
+     */
+    GestureAutomaton(int[] transitions, Object[] outputs, int[] depths, int numTypes,
+                     long timeoutMillis) {
+        mTransitions = transitions;
+        mOutputs = outputs;
+        mDepths = depths;
+        mNumTypes = numTypes;
+        mTimeoutMillis = timeoutMillis;
+        mState = 0;
+    }
+
+    /**
+     * Feed the automaton the next recognized gesture.
+     * @param type the gesture
+     * @param time the time at which the gesture was recognized, in milliseconds
+     * @return the command whose sequence this gesture completes, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    public C advance(GestureType type, long time) {
+        if (mTimeoutMillis > 0 && time - mLastTime > mTimeoutMillis) {
+            mState = 0;
+        }
+        mLastTime = time;
+        mState = mTransitions[mState * mNumTypes + type.ordinal()];
+        C command = (C)mOutputs[mState];
+        if (command != null) {
+            mState = 0;
+        }
+        return command;
+    }
+
+    /**
+     * Return the command whose sequence is exactly the given gestures, e.g. to name a
+     * multi-stroke symbol whose strokes have already been grouped.  Unlike
+     * {@link #advance}, a rule must match the whole list, not just its end.  Ignores the timeout
+     * and doesn't change the automaton's state.
+     * @param types the gestures, in order
+     * @return the command, or null if no rule's sequence is exactly <tt>types</tt>
+     */
+    @SuppressWarnings("unchecked")
+    public C match(List<GestureType> types) {
+        int state = 0;
+        for (int i = 0; i < types.size(); i++) {
+            state = mTransitions[state * mNumTypes + types.get(i).ordinal()];
+            // a shallower state means the transition fell back to a suffix of the gestures
+            if (mDepths[state] != i + 1) {
+                return null;
+            }
+        }
+        return (C)mOutputs[state];
+    }
+
+    /**
+     * Forget any partially matched sequence.
+     */
+    public void reset() {
+        mState = 0;
+    }
+
+    /**
+     * Is the automaton part-way through a sequence?
+     * @return true if at least one gesture of a possible sequence has been seen
+     */
+    public boolean isPending() {
+        return mState != 0;
+    }
+
+}
@@ -0,0 +1,25 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * Told by the {@link com.apprture.universalgestureparser.GestureParser} where and when each
+ * gesture begins, before any of its points or the gesture itself arrive at the
+ * {@link com.apprture.universalgestureparser.GestureListener}.
+ *
+ * @author Herb Jellinek
+ */
+public interface GestureBeginListener {
+
+    /**
+     * A gesture has begun.
+     * @param x the X coordinate where it began
+     * @param y the Y coordinate where it began
+     * @param time the time it began, in milliseconds
+     */
+    public void gestureBegan(float x, float y, long time);
+
+}
@@ -75,6 +75,52 @@ public class GestureBoundingBox {
         mLowerRight = new FPoint(maxX, maxY);
     }
 
+    /**
+     * Create a bounding box based on the points.
+     * @param points a {@link com.apprture.universalgestureparser.PointSequence}
+     */
+    public GestureBoundingBox(PointSequence points) {
+        float minX = Float.MAX_VALUE;
+        float maxX = Float.MIN_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = Float.MIN_VALUE;
+
+        final int size = points.size();
+        for (int i = 0; i < size; i++) {
+            float x = points.getX(i);
+            float y = points.getY(i);
+
+            if (x < minX) {
+                minX = x;
+            }
+            if (x > maxX) {
+                maxX = x;
+            }
+
+            if (y < minY) {
+                minY = y;
+            }
+            if (y > maxY) {
+                maxY = y;
+            }
+        }
+
+        mUpperLeft = new FPoint(minX, minY);
+        mLowerRight = new FPoint(maxX, maxY);
+    }
+
+    /**
+     * Create a bounding box from its extents.
+     * @param minX the smallest X coordinate
+     * @param minY the smallest Y coordinate
+     * @param maxX the largest X coordinate
+     * @param maxY the largest Y coordinate
+     */
+    public GestureBoundingBox(float minX, float minY, float maxX, float maxY) {
+        mUpperLeft = new FPoint(minX, minY);
+        mLowerRight = new FPoint(maxX, maxY);
+    }
+
     /**
      * Return the height of the box.
      * @return the height of the box
@@ -108,6 +154,34 @@ public class GestureBoundingBox {
         return getHeight() <= getWidth() * SHORTNESS_THRESHOLD;
     }
 
+    /**
+     * How far is the box from the edge of being narrow?  The result is positive if the box is
+     * narrow and negative if it isn't, in units of the box's half-perimeter.
+     * @return the margin
+     */
+    public float getNarrownessMargin() {
+        float width = getWidth();
+        float height = getHeight();
+        float perimeter = width + height;
+        if (perimeter <= 0) {
+            return 0;
+        }
+        return (Math.max(width, height) * NARROWNESS_THRESHOLD - Math.min(width, height)) / perimeter;
+    }
+
+    /**
+     * How far is the box from the edge of being short?  The result is positive if the box is
+     * short and negative if it isn't, in units of the box's half-perimeter.
+     * @return the margin
+     */
+    public float getShortnessMargin() {
+        float perimeter = getWidth() + getHeight();
+        if (perimeter <= 0) {
+            return 0;
+        }
+        return (getWidth() * SHORTNESS_THRESHOLD - getHeight()) / perimeter;
+    }
+
     /**
      * Is this box wide?
      * @return true if it's wide
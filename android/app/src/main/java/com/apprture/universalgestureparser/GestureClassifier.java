@@ -0,0 +1,254 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * Decides which {@link com.apprture.universalgestureparser.GestureType} a completed stroke
+ * represents.  This is the recognizer proper, separated from
+ * {@link com.apprture.universalgestureparser.GestureParser} so it can run on any
+ * {@link com.apprture.universalgestureparser.PointSequence}, not just on live touch input.
+ * <p>
+ * Strokes can be classified from their points or, in constant time, from the running
+ * {@link com.apprture.universalgestureparser.StrokeFeatures} gathered while they were drawn.
+ * A classifier keeps the features of the last stroke it classified, so it is not thread-safe;
+ * use one per thread.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureClassifier {
+
+    private static final int ENOUGH_REVERSES_TO_BE_RUB_OUT = 6;
+
+    private static final float FLICK_THRESHOLD = 3.0f;
+
+    private static final float CIRCLE_RADIANS = (float)(2 * Math.PI);
+
+    private static final int FEW_ENOUGH_POINTS_TO_BE_A_CLICK = 3;
+
+    private static final float PORTION_OF_A_CIRCLE_TO_BE_CLOSED = .75f;
+
+    /*
+     * How gradually each score falls off on either side of its threshold, used by score().
+     * A feature one softness unit past its threshold scores about 0.73 for that side.
+     */
+
+    private static final float REVERSES_SOFTNESS = 1.0f;
+
+    private static final float SPIRAL_SOFTNESS = (float)(Math.PI / 4);
+
+    private static final float FLICK_SOFTNESS = 0.5f;
+
+    private static final float BOX_MARGIN_SOFTNESS = 0.05f;
+
+    private static final float DIRECTION_SOFTNESS = 0.05f;
+
+    /**
+     * Features gathered when classifying a whole {@link PointSequence}.
+     */
+    private StrokeFeatures mSequenceFeatures = new StrokeFeatures();
+
+    /**
+     * The features of the last stroke classified.
+     */
+    private StrokeFeatures mFeatures = mSequenceFeatures;
+
+    /**
+     * Classify a stroke, if possible.
+     * @param points the points of the stroke, not including the "down" point
+     * @param downX the X coordinate of the "down" event that started the stroke
+     * @param downY the Y coordinate of the "down" event that started the stroke
+     * @param startTime the time at which the touch started
+     * @param upTime the time at which the touch ended
+     * @return the {@link com.apprture.universalgestureparser.GestureType} recognized
+     */
+    public GestureType classify(PointSequence points, float downX, float downY, long startTime,
+                                long upTime) {
+        final int size = points.size();
+        boolean traced = GestureTrace.begin(GestureTrace.ANALYZE_POINTS, size);
+        mSequenceFeatures.reset(downX, downY);
+        for (int i = 0; i < size; i++) {
+            mSequenceFeatures.addPoint(points.getX(i), points.getY(i));
+        }
+        GestureTrace.end(traced);
+        return classify(mSequenceFeatures, startTime, upTime);
+    }
+
+    /**
+     * Classify a stroke, if possible, from its running features.  This takes constant time,
+     * however long the stroke is.
+     * @param features the features of the stroke
+     * @param startTime the time at which the touch started
+     * @param upTime the time at which the touch ended
+     * @return the {@link com.apprture.universalgestureparser.GestureType} recognized
+     */
+    public GestureType classify(StrokeFeatures features, long startTime, long upTime) {
+        mFeatures = features;
+        boolean traced = GestureTrace.begin(GestureTrace.DECISION, features.getPointCount());
+        try {
+            return decide(features, startTime, upTime);
+        } finally {
+            GestureTrace.end(traced);
+        }
+    }
+
+    /**
+     * Run the decision tree over the features of a stroke.
+     * @param features the features of the stroke
+     * @param startTime the time at which the touch started
+     * @param upTime the time at which the touch ended
+     * @return the {@link com.apprture.universalgestureparser.GestureType} recognized
+     */
+    private GestureType decide(StrokeFeatures features, long startTime, long upTime) {
+        if (features.getPointCount() < FEW_ENOUGH_POINTS_TO_BE_A_CLICK) {
+            return GestureType.CLICK;
+        }
+        boolean traced = GestureTrace.begin(GestureTrace.BOUNDING_BOX);
+        GestureBoundingBox box = features.getBoundingBox();
+        GestureTrace.end(traced);
+
+        if (features.getDotProductReverses() >= ENOUGH_REVERSES_TO_BE_RUB_OUT) {
+            return GestureType.RUB_OUT;
+        }
+
+        if (Math.abs(features.getSumOfAngles()) >= CIRCLE_RADIANS * PORTION_OF_A_CIRCLE_TO_BE_CLOSED) {
+            if (features.isClockwise()) {
+                return GestureType.SPIRAL_CLOCKWISE;
+            } else {
+                return GestureType.SPIRAL_COUNTERCLOCKWISE;
+            }
+        }
+
+        boolean narrow = box.isNarrow();
+        if (narrow) {
+            traced = GestureTrace.begin(GestureTrace.VELOCITY);
+            float v = features.getVelocity(startTime, upTime);
+            GestureTrace.end(traced);
+            if (v <= FLICK_THRESHOLD) {
+                if (box.isShort()) {
+                    if (features.getFirstX() < features.getLastX()) {
+                        return GestureType.SWIPE_RIGHT;
+                    } else {
+                        return GestureType.SWIPE_LEFT;
+                    }
+                } else {
+                    if (features.getFirstY() < features.getLastY()) {
+                        return GestureType.SWIPE_DOWN;
+                    } else {
+                        return GestureType.SWIPE_UP;
+                    }
+                }
+            } else {
+                if (box.isShort()) {
+                    if (features.getFirstX() < features.getLastX()) {
+                        return GestureType.FLICK_RIGHT;
+                    } else {
+                        return GestureType.FLICK_LEFT;
+                    }
+                } else {
+                    if (features.getFirstY() < features.getLastY()) {
+                        return GestureType.FLICK_DOWN;
+                    } else {
+                        return GestureType.FLICK_UP;
+                    }
+                }
+            }
+        }
+
+        return GestureType.UNKNOWN;
+    }
+
+    /**
+     * Score every {@link com.apprture.universalgestureparser.GestureType} for a stroke, from the
+     * same features {@link #classify(StrokeFeatures, long, long)} uses.  Each test in the
+     * classification (rub out?  spiral?  narrow?  flick?  short?  which way?) is turned into a
+     * probability that is 0.5 at its threshold, and each type's score is the product of the
+     * probabilities along its path.  The best-scoring type is usually the one {@link #classify}
+     * picks; the two can differ only when some feature is close to its threshold.
+     * @param features the features of the stroke
+     * @param startTime the time at which the touch started
+     * @param upTime the time at which the touch ended
+     * @param scores receives the scores
+     * @return <tt>scores</tt>
+     */
+    public GestureScores score(StrokeFeatures features, long startTime, long upTime,
+                               GestureScores scores) {
+        scores.clear();
+        if (features.getPointCount() < FEW_ENOUGH_POINTS_TO_BE_A_CLICK) {
+            scores.setScore(GestureType.CLICK, 1);
+            return scores;
+        }
+        GestureBoundingBox box = features.getBoundingBox();
+
+        float rubOut = sigmoid((features.getDotProductReverses() - ENOUGH_REVERSES_TO_BE_RUB_OUT + 0.5f) /
+                               REVERSES_SOFTNESS);
+        float spiral = sigmoid((Math.abs(features.getSumOfAngles()) -
+                                CIRCLE_RADIANS * PORTION_OF_A_CIRCLE_TO_BE_CLOSED) / SPIRAL_SOFTNESS);
+        float clockwise = sigmoid(features.getSumOfAngles() / SPIRAL_SOFTNESS);
+        float narrow = sigmoid(box.getNarrownessMargin() / BOX_MARGIN_SOFTNESS);
+        float flick = sigmoid((features.getVelocity(startTime, upTime) - FLICK_THRESHOLD) /
+                              FLICK_SOFTNESS);
+        float horizontal = sigmoid(box.getShortnessMargin() / BOX_MARGIN_SOFTNESS);
+        float size = Math.max(1, box.getWidth() + box.getHeight());
+        float right = sigmoid((features.getLastX() - features.getFirstX()) / (size * DIRECTION_SOFTNESS));
+        float down = sigmoid((features.getLastY() - features.getFirstY()) / (size * DIRECTION_SOFTNESS));
+
+        scores.setScore(GestureType.RUB_OUT, rubOut);
+        float rest = 1 - rubOut;
+        scores.setScore(GestureType.SPIRAL_CLOCKWISE, rest * spiral * clockwise);
+        scores.setScore(GestureType.SPIRAL_COUNTERCLOCKWISE, rest * spiral * (1 - clockwise));
+        rest *= 1 - spiral;
+        scores.setScore(GestureType.UNKNOWN, rest * (1 - narrow));
+        rest *= narrow;
+
+        float swipe = rest * (1 - flick);
+        scores.setScore(GestureType.SWIPE_RIGHT, swipe * horizontal * right);
+        scores.setScore(GestureType.SWIPE_LEFT, swipe * horizontal * (1 - right));
+        scores.setScore(GestureType.SWIPE_DOWN, swipe * (1 - horizontal) * down);
+        scores.setScore(GestureType.SWIPE_UP, swipe * (1 - horizontal) * (1 - down));
+
+        float fast = rest * flick;
+        scores.setScore(GestureType.FLICK_RIGHT, fast * horizontal * right);
+        scores.setScore(GestureType.FLICK_LEFT, fast * horizontal * (1 - right));
+        scores.setScore(GestureType.FLICK_DOWN, fast * (1 - horizontal) * down);
+        scores.setScore(GestureType.FLICK_UP, fast * (1 - horizontal) * (1 - down));
+
+        return scores;
+    }
+
+    /**
+     * The logistic function, which maps any number smoothly onto (0, 1), with 0 going to 0.5.
+     * @param x the number
+     * @return the result
+     */
+    private static float sigmoid(float x) {
+        return (float)(1 / (1 + Math.exp(-x)));
+    }
+
+    /**
+     * Return the number of times the direction of travel reversed in the last stroke classified.
+     * @return the number of reversals of the sign of the dot product
+     */
+    public int getDotProductReverses() {
+        return mFeatures.getDotProductReverses();
+    }
+
+    /**
+     * Return the sum of the turning angles of the last stroke classified.
+     * @return the sum of the angles, in radians; positive is clockwise
+     */
+    public float getSumOfAngles() {
+        return mFeatures.getSumOfAngles();
+    }
+
+    /**
+     * Return the number of vectors in the last stroke classified.
+     * @return the number of vectors
+     */
+    public int getNumVectors() {
+        return mFeatures.getNumVectors();
+    }
+
+}
@@ -0,0 +1,407 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import android.util.Log;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Executor;
+
+/**
+ * A {@link com.apprture.universalgestureparser.GestureListener} that passes everything it
+ * receives on to any number of subscribers, each on its own
+ * {@link java.util.concurrent.Executor}, so a slow subscriber can't hold up the parser.
+ * <p>
+ * The subscribers are kept in a copy-on-write array, so dispatching never takes a lock shared
+ * with {@link #subscribe} or {@link #unsubscribe}.  Each subscriber has its own queue.  Calls to
+ * {@link #points(java.util.List)} that are still waiting to be delivered are coalesced, so a
+ * subscriber that falls behind sees the latest points instead of a backlog.  Calls to
+ * {@link #gesture} are never dropped.  A gesture by itself is small; what makes a backlog
+ * expensive is the points attached to it.  So each subscriber keeps the points of only its
+ * newest few undelivered gestures (16 unless given to the constructor), and older gestures in
+ * its queue are delivered with an empty list of points.  A subscriber that stalls for a while
+ * thus still gets every gesture, in order, and memory grows only by a few dozen bytes per
+ * gesture it falls behind.
+ * <p>
+ * The points handed to subscribers are immutable snapshots, shared by every subscriber.  The
+ * dispatcher keeps its own append-only copy of the gesture in progress and copies only the
+ * points added since the last call, so the work per call doesn't grow with the length of the
+ * gesture.  This relies on the parser only ever adding points to the end of its list (and, with
+ * a window, dropping them from the start); call {@link #gesture} and {@link #points} from one
+ * thread, as the parser does.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureDispatcher implements GestureListener {
+
+    /*
+     * Debug tag.
+     */
+    private static final String TAG = "GestureDispatcher";
+
+    /**
+     * The default number of undelivered gestures per subscriber that keep their points.
+     */
+    public static final int DEFAULT_POINTS_CAPACITY = 16;
+
+    /**
+     * The smallest array a {@link PointLog} allocates.
+     */
+    private static final int MIN_LOG_CAPACITY = 16;
+
+    private static final Subscriber[] NO_SUBSCRIBERS = new Subscriber[0];
+
+    private volatile Subscriber[] mSubscribers = NO_SUBSCRIBERS;
+
+    /**
+     * The points of the gesture in progress.  Only touched by the thread calling the parser.
+     */
+    private final PointLog mLog = new PointLog();
+
+    private final int mPointsCapacity;
+
+    /**
+     * Create a dispatcher that keeps the points of {@link #DEFAULT_POINTS_CAPACITY} undelivered
+     * gestures per subscriber.
+     */
+    public GestureDispatcher() {
+        this(DEFAULT_POINTS_CAPACITY);
+    }
+
+    /**
+     * Create a dispatcher.
+     * @param pointsCapacity how many of a subscriber's undelivered gestures keep their points;
+     *                       older ones are delivered with an empty list
+     */
+    public GestureDispatcher(int pointsCapacity) {
+        if (pointsCapacity < 0) {
+            throw new IllegalArgumentException("negative capacity " + pointsCapacity);
+        }
+        mPointsCapacity = pointsCapacity;
+    }
+
+    /**
+     * Add a subscriber.
+     * @param listener the listener to call
+     * @param executor the {@link java.util.concurrent.Executor} to call it on
+     */
+    public synchronized void subscribe(GestureListener listener, Executor executor) {
+        Subscriber[] subscribers = new Subscriber[mSubscribers.length + 1];
+        System.arraycopy(mSubscribers, 0, subscribers, 0, mSubscribers.length);
+        subscribers[mSubscribers.length] = new Subscriber(listener, executor, mPointsCapacity);
+        mSubscribers = subscribers;
+    }
+
+    /**
+     * Remove a subscriber.  Notifications already queued for it are still delivered.
+     * @param listener the listener passed to {@link #subscribe}
+     */
+    public synchronized void unsubscribe(GestureListener listener) {
+        for (int i = 0; i < mSubscribers.length; i++) {
+            if (mSubscribers[i].mListener == listener) {
+                remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Remove the subscriber at an index of the array.  Call with the lock held.
+     * @param i the index
+     */
+    private void remove(int i) {
+        Subscriber[] subscribers = new Subscriber[mSubscribers.length - 1];
+        System.arraycopy(mSubscribers, 0, subscribers, 0, i);
+        System.arraycopy(mSubscribers, i + 1, subscribers, i, subscribers.length - i);
+        mSubscribers = subscribers;
+    }
+
+    @Override
+    public void gesture(GestureType type, float startX, float startY, float endX, float endY,
+                        List<FPoint> points) {
+        Subscriber[] subscribers = mSubscribers;
+        if (subscribers.length == 0) {
+            mLog.clear();
+            return;
+        }
+        List<FPoint> snapshot = mLog.snapshot(points);
+        // the gesture is over, so its points won't be added to again
+        mLog.clear();
+        for (Subscriber subscriber : subscribers) {
+            // each subscriber gets its own event, since it may take the points away
+            subscriber.enqueue(new Event(type, startX, startY, endX, endY, snapshot));
+        }
+    }
+
+    @Override
+    public void points(List<FPoint> points) {
+        Subscriber[] subscribers = mSubscribers;
+        if (subscribers.length == 0) {
+            return;
+        }
+        List<FPoint> snapshot = mLog.snapshot(points);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.enqueuePoints(snapshot);
+        }
+    }
+
+    /**
+     * An append-only copy of the points of the gesture in progress.  Elements of the array below
+     * <tt>mEnd</tt> are never written again, so {@link Snapshot}s of them can be shared with
+     * other threads; when the array fills up, the points still in use are copied to a new one.
+     */
+    private static class PointLog {
+
+        /**
+         * The list the parser is adding to.
+         */
+        private List<FPoint> mSource;
+
+        private FPoint[] mPoints;
+
+        /**
+         * The index of the oldest point still in the source list.
+         */
+        private int mStart;
+
+        private int mEnd;
+
+        private Snapshot mLastSnapshot;
+
+        /**
+         * Bring the log up to date with the source list and return a snapshot of its contents.
+         * @param points the source list
+         * @return an immutable list of the same points
+         */
+        Snapshot snapshot(List<FPoint> points) {
+            if (points != mSource) {
+                // a new gesture; outstanding snapshots still refer to the old array
+                mSource = points;
+                mPoints = new FPoint[Math.max(MIN_LOG_CAPACITY, points.size())];
+                mStart = mEnd = 0;
+                mLastSnapshot = null;
+            }
+            int size = points.size();
+            // find the newest point we already have; everything after it is new
+            int added = size;
+            if (mEnd > mStart) {
+                FPoint newest = mPoints[mEnd - 1];
+                for (int i = size - 1; i >= 0; i--) {
+                    if (points.get(i) == newest) {
+                        added = size - 1 - i;
+                        break;
+                    }
+                }
+            }
+            if (added == 0 && mLastSnapshot != null && mLastSnapshot.size() == size) {
+                return mLastSnapshot;
+            }
+            if (mEnd + added > mPoints.length) {
+                int retained = Math.min(mEnd - mStart, size - added);
+                FPoint[] grown = new FPoint[Math.max(MIN_LOG_CAPACITY, 2 * size)];
+                System.arraycopy(mPoints, mEnd - retained, grown, 0, retained);
+                mPoints = grown;
+                mEnd = retained;
+            }
+            for (int i = size - added; i < size; i++) {
+                mPoints[mEnd++] = points.get(i);
+            }
+            mStart = mEnd - size;
+            mLastSnapshot = new Snapshot(mPoints, mStart, mEnd);
+            return mLastSnapshot;
+        }
+
+        /**
+         * Forget the gesture.
+         */
+        void clear() {
+            mSource = null;
+            mPoints = null;
+            mStart = mEnd = 0;
+            mLastSnapshot = null;
+        }
+
+    }
+
+    /**
+     * An immutable view of part of a {@link PointLog}'s array.
+     */
+    private static class Snapshot extends AbstractList<FPoint> implements RandomAccess {
+
+        private final FPoint[] mPoints;
+
+        private final int mStart;
+
+        private final int mEnd;
+
+        Snapshot(FPoint[] points, int start, int end) {
+            mPoints = points;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        public FPoint get(int index) {
+            if (index < 0 || index >= mEnd - mStart) {
+                throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+            }
+            return mPoints[mStart + index];
+        }
+
+        @Override
+        public int size() {
+            return mEnd - mStart;
+        }
+
+    }
+
+    /**
+     * A notification waiting to be delivered.  A null type means it's a call to
+     * {@link GestureListener#points(java.util.List)}.
+     */
+    private static class Event {
+
+        private final GestureType mType;
+
+        private final float mStartX;
+
+        private final float mStartY;
+
+        private final float mEndX;
+
+        private final float mEndY;
+
+        private List<FPoint> mPoints;
+
+        Event(GestureType type, float startX, float startY, float endX, float endY,
+              List<FPoint> points) {
+            mType = type;
+            mStartX = startX;
+            mStartY = startY;
+            mEndX = endX;
+            mEndY = endY;
+            mPoints = points;
+        }
+
+        Event(List<FPoint> points) {
+            this(null, 0, 0, 0, 0, points);
+        }
+
+    }
+
+    /**
+     * One subscriber, with its queue of undelivered notifications.
+     */
+    private static class Subscriber implements Runnable {
+
+        private final GestureListener mListener;
+
+        private final Executor mExecutor;
+
+        private final ArrayDeque<Event> mQueue = new ArrayDeque<Event>();
+
+        /**
+         * The gestures in the queue that still have their points, oldest first.
+         */
+        private final ArrayDeque<Event> mWithPoints = new ArrayDeque<Event>();
+
+        private final int mPointsCapacity;
+
+        /**
+         * Is a call to {@link #run()} pending or in progress on the executor?
+         */
+        private boolean mScheduled;
+
+        Subscriber(GestureListener listener, Executor executor, int pointsCapacity) {
+            mListener = listener;
+            mExecutor = executor;
+            mPointsCapacity = pointsCapacity;
+        }
+
+        /**
+         * Queue a gesture.  If that leaves too many undelivered gestures with points, the
+         * oldest of them loses its points.
+         * @param event the gesture
+         */
+        void enqueue(Event event) {
+            synchronized (this) {
+                mQueue.addLast(event);
+                mWithPoints.addLast(event);
+                if (mWithPoints.size() > mPointsCapacity) {
+                    mWithPoints.pollFirst().mPoints = Collections.<FPoint>emptyList();
+                }
+            }
+            schedule();
+        }
+
+        /**
+         * Queue some points, replacing any points that haven't been delivered yet.
+         * @param points the points
+         */
+        void enqueuePoints(List<FPoint> points) {
+            synchronized (this) {
+                Event last = mQueue.peekLast();
+                if (last != null && last.mType == null) {
+                    last.mPoints = points;
+                    return;
+                }
+                mQueue.addLast(new Event(points));
+            }
+            schedule();
+        }
+
+        /**
+         * Make sure the executor will drain the queue.
+         */
+        private void schedule() {
+            synchronized (this) {
+                if (mScheduled) {
+                    return;
+                }
+                mScheduled = true;
+            }
+            mExecutor.execute(this);
+        }
+
+        /**
+         * Deliver everything in the queue.
+         */
+        @Override
+        public void run() {
+            while (true) {
+                Event event;
+                List<FPoint> points;
+                synchronized (this) {
+                    event = mQueue.pollFirst();
+                    if (event == null) {
+                        mScheduled = false;
+                        return;
+                    }
+                    if (event == mWithPoints.peekFirst()) {
+                        mWithPoints.pollFirst();
+                    }
+                    points = event.mPoints;
+                }
+                try {
+                    if (event.mType == null) {
+                        mListener.points(points);
+                    } else {
+                        mListener.gesture(event.mType, event.mStartX, event.mStartY, event.mEndX,
+                                          event.mEndY, points);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "subscriber " + mListener + " failed", e);
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of rules that map sequences of {@link com.apprture.universalgestureparser.GestureType}
+ * tokens to commands, e.g. SWIPE_RIGHT, SPIRAL_CLOCKWISE, CLICK to "open."  Add the rules, then
+ * call {@link #compile(long)} to get a {@link com.apprture.universalgestureparser.GestureAutomaton}
+ * that matches them against the stream of recognized gestures.
+ * <p>
+ * A rule matches wherever its tokens appear consecutively in the stream, and a match consumes
+ * those tokens.  Since a rule whose sequence appears inside another's would always fire first
+ * and hide the longer one, such rule sets are rejected.
+ *
+ * @param <C> the type of the commands
+ * @author Herb Jellinek
+ */
+public class GestureGrammar<C> {
+
+    private static final int NUM_TYPES = GestureType.values().length;
+
+    private List<GestureType[]> mSequences = new ArrayList<GestureType[]>();
+
+    private List<C> mCommands = new ArrayList<C>();
+
+    /**
+     * Add a rule.
+     * @param command the command to produce when the sequence is seen
+     * @param sequence the sequence of gestures, at least one long
+     * @return this grammar, for chaining
+     */
+    public GestureGrammar<C> addRule(C command, GestureType... sequence) {
+        if (command == null) {
+            throw new IllegalArgumentException("null command");
+        }
+        if (sequence.length == 0) {
+            throw new IllegalArgumentException("empty sequence for " + command);
+        }
+        mSequences.add(sequence.clone());
+        mCommands.add(command);
+        return this;
+    }
+
+    /**
+     * Compile the rules into a deterministic automaton.
+     * @param timeoutMillis the longest pause allowed between the gestures of one sequence;
+     *                      0 means no limit
+     * @return the automaton, in its start state
+     */
+    public GestureAutomaton<C> compile(long timeoutMillis) {
+        // build a trie of the sequences; state 0 is the root, -1 is "no edge yet"
+        int maxStates = 1;
+        for (GestureType[] sequence : mSequences) {
+            maxStates += sequence.length;
+        }
+        int[] transitions = new int[maxStates * NUM_TYPES];
+        Arrays.fill(transitions, -1);
+        Object[] outputs = new Object[maxStates];
+        boolean[] hasChildren = new boolean[maxStates];
+        int[] depths = new int[maxStates];
+        int numStates = 1;
+
+        for (int r = 0; r < mSequences.size(); r++) {
+            GestureType[] sequence = mSequences.get(r);
+            int state = 0;
+            for (GestureType token : sequence) {
+                if (outputs[state] != null) {
+                    throw new IllegalArgumentException("rule for " + outputs[state] +
+                                                       " is a prefix of the rule for " +
+                                                       mCommands.get(r));
+                }
+                int edge = state * NUM_TYPES + token.ordinal();
+                if (transitions[edge] < 0) {
+                    depths[numStates] = depths[state] + 1;
+                    transitions[edge] = numStates++;
+                }
+                hasChildren[state] = true;
+                state = transitions[edge];
+            }
+            if (outputs[state] != null || hasChildren[state]) {
+                throw new IllegalArgumentException("rule for " + mCommands.get(r) +
+                                                   " duplicates or is a prefix of another rule");
+            }
+            outputs[state] = mCommands.get(r);
+        }
+
+        // Aho-Corasick: breadth-first, point each missing edge at the edge taken from the
+        // state's failure state (the longest proper suffix that is also a trie state)
+        int[] failure = new int[numStates];
+        int[] queue = new int[numStates];
+        int head = 0;
+        int tail = 0;
+        for (int t = 0; t < NUM_TYPES; t++) {
+            int next = transitions[t];
+            if (next < 0) {
+                transitions[t] = 0;
+            } else {
+                failure[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while (head < tail) {
+            int state = queue[head++];
+            if (outputs[state] == null) {
+                outputs[state] = outputs[failure[state]];
+                if (outputs[state] != null && hasChildren[state]) {
+                    throw new IllegalArgumentException("rule for " + outputs[state] +
+                                                       " appears inside a longer rule");
+                }
+            }
+            for (int t = 0; t < NUM_TYPES; t++) {
+                int edge = state * NUM_TYPES + t;
+                int next = transitions[edge];
+                int fallback = transitions[failure[state] * NUM_TYPES + t];
+                if (next < 0) {
+                    transitions[edge] = fallback;
+                } else {
+                    failure[next] = fallback;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        return new GestureAutomaton<C>(Arrays.copyOf(transitions, numStates * NUM_TYPES),
+                                       Arrays.copyOf(outputs, numStates),
+                                       Arrays.copyOf(depths, numStates), NUM_TYPES,
+                                       timeoutMillis);
+    }
+
+}
@@ -9,8 +9,7 @@ import android.util.Log;
 import android.view.MotionEvent;
 import android.view.View;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -52,22 +51,51 @@ public class GestureParser implements View.OnTouchListener, View.OnClickListener
      */
     private static final String TAG = "GestureParser";
 
-    private static final int ENOUGH_REVERSES_TO_BE_RUB_OUT = 6;
+    private static final float MOVE_THRESHOLD = 5.0f;
 
-    private static final float FLICK_THRESHOLD = 3.0f;
+    private GestureListener mGestureListener;
 
-    private static final float CIRCLE_RADIANS = (float)(2 * Math.PI);
+    private GestureClassifier mClassifier = new GestureClassifier();
 
-    private static final float MOVE_THRESHOLD = 5.0f;
+    private FlightRecorder mFlightRecorder = new FlightRecorder();
 
-    private static final int FEW_ENOUGH_POINTS_TO_BE_A_CLICK = 3;
+    /**
+     * Fed the points of each gesture as they arrive, or null.
+     */
+    private StrokePredictor mPredictor;
 
-    private static final float PORTION_OF_A_CIRCLE_TO_BE_CLOSED = .75f;
+    /**
+     * Told where each gesture begins, or null.
+     */
+    private GestureBeginListener mBeginListener;
 
-    private GestureListener mGestureListener;
+    /**
+     * The most points to keep for a gesture, or 0 to keep them all.
+     */
+    private int mWindowSize;
 
     private List<FPoint> mGesturePoints;
 
+    /**
+     * Running features of the gesture in progress, so classification doesn't depend on
+     * keeping every point.
+     */
+    private StrokeFeatures mFeatures = new StrokeFeatures();
+
+    /**
+     * Scores of every gesture type for the last gesture, reused from gesture to gesture.
+     */
+    private GestureScores mScores = new GestureScores();
+
+    /**
+     * Scratch space for the samples of a single <tt>ACTION_MOVE</tt>, reused across events.
+     */
+    private float[] mSampleXs = new float[0];
+
+    private float[] mSampleYs = new float[0];
+
+    private long[] mSampleTimes = new long[0];
+
     private long mGestureStartTime;
 
     private float mDownX;
@@ -78,21 +106,29 @@ public class GestureParser implements View.OnTouchListener, View.OnClickListener
 
     private float mLastMoveY;
 
-    private int mDotProductReverses = 0;
-
-    private float mSumOfAngles = 0;
-
-    private boolean mDirectionClockwise;
-
-    private int mNumVectors;
-
     /**
      * Create a new {@link com.apprture.universalgestureparser.GestureParser} that calls the given
      * {@link GestureListener}.
      * @param gestureListener the listener that will receive points and the parsed gesture
      */
     public GestureParser(GestureListener gestureListener) {
+        this(gestureListener, 0);
+    }
+
+    /**
+     * Create a new {@link com.apprture.universalgestureparser.GestureParser} that calls the given
+     * {@link GestureListener} and keeps only the most recent points of each gesture, so memory
+     * use is bounded however long the gesture lasts.  Gestures are still classified using all
+     * of their points; the listener sees only the most recent ones.
+     * @param gestureListener the listener that will receive points and the parsed gesture
+     * @param windowSize the most points to keep for a gesture, or 0 to keep them all
+     */
+    public GestureParser(GestureListener gestureListener, int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("negative window size " + windowSize);
+        }
         mGestureListener = gestureListener;
+        mWindowSize = windowSize;
         mGesturePoints = null;
     }
 
@@ -105,6 +141,151 @@ public class GestureParser implements View.OnTouchListener, View.OnClickListener
         view.setOnClickListener(this);
     }
 
+    /**
+     * Return the {@link com.apprture.universalgestureparser.FlightRecorder} that remembers the
+     * most recent strokes this parser has seen.
+     * @return the flight recorder
+     */
+    public FlightRecorder getFlightRecorder() {
+        return mFlightRecorder;
+    }
+
+    /**
+     * Feed a {@link com.apprture.universalgestureparser.StrokePredictor} the points of each
+     * gesture.  It's reset when a gesture begins, then given the starting point and every point
+     * that gets past the movement threshold, with its sample time, before the listener hears
+     * about the points.
+     * @param predictor the predictor, or null for none
+     */
+    public void setPredictor(StrokePredictor predictor) {
+        mPredictor = predictor;
+    }
+
+    /**
+     * Tell a {@link com.apprture.universalgestureparser.GestureBeginListener} where and when
+     * each gesture begins, e.g. a {@link com.apprture.universalgestureparser.GestureTargetRegistry}
+     * that routes by the starting point.
+     * @param beginListener the listener, or null for none
+     */
+    public void setBeginListener(GestureBeginListener beginListener) {
+        mBeginListener = beginListener;
+    }
+
+    /**
+     * Return the scores of every {@link com.apprture.universalgestureparser.GestureType} for the
+     * most recent gesture.  The object is reused, so copy anything you need to keep after the
+     * next gesture ends.
+     * @return the scores
+     */
+    public GestureScores getScores() {
+        return mScores;
+    }
+
+    /**
+     * Start a new gesture.  {@link #onTouch} calls this on <tt>ACTION_DOWN</tt>; call it
+     * directly to drive the parser from some other source of input.
+     * @param x the X coordinate where the gesture starts
+     * @param y the Y coordinate where the gesture starts
+     * @param time the time the gesture starts, in milliseconds
+     */
+    public void beginGesture(float x, float y, long time) {
+        if (mWindowSize > 0) {
+            mGesturePoints = new FPointWindow(mWindowSize);
+        } else {
+            mGesturePoints = new ArrayList<FPoint>();
+        }
+        mDownX = mLastMoveX = x;
+        mDownY = mLastMoveY = y;
+        mFeatures.reset(mDownX, mDownY);
+        mGestureStartTime = time;
+        mFlightRecorder.beginStroke(mGestureStartTime);
+        mFlightRecorder.addSample(mDownX, mDownY, time);
+        if (mPredictor != null) {
+            mPredictor.reset();
+            mPredictor.addSample(mDownX, mDownY, time);
+        }
+        GestureTrace.end(GestureTrace.begin(GestureTrace.GESTURE_START));
+        if (mBeginListener != null) {
+            mBeginListener.gestureBegan(mDownX, mDownY, time);
+        }
+    }
+
+    /**
+     * Add a chunk of samples to the gesture in progress, then pass the points along to the
+     * listener.  Samples that are too close to the last point kept are ignored.  Ignored if
+     * there's no gesture in progress.
+     * @param xs the X coordinates
+     * @param ys the Y coordinates
+     * @param times the sample times, in milliseconds
+     * @param offset the index of the first sample in the arrays
+     * @param length the number of samples
+     * @throws IndexOutOfBoundsException if the samples don't all lie within the three arrays;
+     * nothing is recorded in that case
+     */
+    public void addSamples(float[] xs, float[] ys, long[] times, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > xs.length - length ||
+                offset > ys.length - length || offset > times.length - length) {
+            throw new IndexOutOfBoundsException("samples " + offset + ".." + (offset + length) +
+                                                " outside arrays of " + xs.length + ", " +
+                                                ys.length + ", " + times.length);
+        }
+        final List<FPoint> gesturePoints = mGesturePoints;
+        if (gesturePoints == null) {
+            return;
+        }
+        boolean traced = GestureTrace.begin(GestureTrace.ADD_SAMPLES, length);
+        mFlightRecorder.addSamples(xs, ys, times, offset, length);
+
+        final StrokeFeatures features = mFeatures;
+        final StrokePredictor predictor = mPredictor;
+        float lastX = mLastMoveX;
+        float lastY = mLastMoveY;
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            final float eventX = xs[i];
+            final float eventY = ys[i];
+            if (SomeMath.length(eventX - lastX, eventY - lastY) > MOVE_THRESHOLD) {
+                gesturePoints.add(new FPoint(eventX, eventY));
+                features.addPoint(eventX, eventY);
+                if (predictor != null) {
+                    predictor.addSample(eventX, eventY, times[i]);
+                }
+                lastX = eventX;
+                lastY = eventY;
+            }
+        }
+        mLastMoveX = lastX;
+        mLastMoveY = lastY;
+        GestureTrace.end(traced);
+        mGestureListener.points(gesturePoints);
+    }
+
+    /**
+     * Finish the gesture in progress, classify it and tell the listener.  {@link #onTouch}
+     * calls this on <tt>ACTION_UP</tt>.  Ignored if there's no gesture in progress.
+     * @param x the X coordinate where the gesture ends
+     * @param y the Y coordinate where the gesture ends
+     * @param time the time the gesture ends, in milliseconds
+     */
+    public void endGesture(float x, float y, long time) {
+        if (mGesturePoints == null) {
+            return;
+        }
+        // classify the points in mGesturePoints, emit token
+        boolean traced = GestureTrace.begin(GestureTrace.CLASSIFY, mFeatures.getPointCount());
+        GestureType type = mClassifier.classify(mFeatures, mGestureStartTime, time);
+        mClassifier.score(mFeatures, mGestureStartTime, time, mScores);
+        GestureTrace.end(traced);
+        mFlightRecorder.addSample(x, y, time);
+        mFlightRecorder.endStroke(type, time, mClassifier);
+        List<FPoint> gesturePoints = mGesturePoints;
+        mGesturePoints = null;
+        if (!gesturePoints.isEmpty()) {
+            GestureTrace.mark(GestureTrace.GESTURE_EMITTED, type, mFeatures.getPointCount());
+            mGestureListener.gesture(type, mDownX, mDownY, x, y, gesturePoints);
+        }
+    }
+
     /**
      * Handle a touch event.
      * @param v the {@link View} where it occurred
@@ -116,52 +297,32 @@ public class GestureParser implements View.OnTouchListener, View.OnClickListener
         final int action = event.getAction();
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
-                mGesturePoints = new LinkedList<FPoint>();
-                mDownX = mLastMoveX = event.getX();
-                mDownY = mLastMoveY = event.getY();
-                mGestureStartTime = event.getDownTime();
+                beginGesture(event.getX(), event.getY(), event.getDownTime());
                 break;
             }
             case MotionEvent.ACTION_MOVE: {
                 if (mGesturePoints != null) {
-                    int points = event.getHistorySize();
-                    float lastX = mLastMoveX;
-                    float lastY = mLastMoveY;
-                    for (int i = 0; i < points; i++) {
-                        float eventX = event.getHistoricalX(i);
-                        float eventY = event.getHistoricalY(i);
-                        if (SomeMath.length(eventX - lastX, eventY - lastY) > MOVE_THRESHOLD) {
-                            final FPoint p = new FPoint(eventX, eventY);
-                            mGesturePoints.add(p);
-                            lastX = eventX;
-                            lastY = eventY;
-                        }
+                    // copy the batched samples out of the event, then process them in one pass
+                    int history = event.getHistorySize();
+                    if (mSampleXs.length < history + 1) {
+                        mSampleXs = new float[history + 1];
+                        mSampleYs = new float[history + 1];
+                        mSampleTimes = new long[history + 1];
                     }
-                    float eventX = event.getX();
-                    float eventY = event.getY();
-                    if (SomeMath.length(eventX - lastX, eventY - lastY) > MOVE_THRESHOLD) {
-                        final FPoint p = new FPoint(eventX, eventY);
-                        mGesturePoints.add(p);
-                        lastX = eventX;
-                        lastY = eventY;
+                    for (int i = 0; i < history; i++) {
+                        mSampleXs[i] = event.getHistoricalX(i);
+                        mSampleYs[i] = event.getHistoricalY(i);
+                        mSampleTimes[i] = event.getHistoricalEventTime(i);
                     }
-                    mLastMoveX = lastX;
-                    mLastMoveY = lastY;
-                    mGestureListener.points(mGesturePoints);
+                    mSampleXs[history] = event.getX();
+                    mSampleYs[history] = event.getY();
+                    mSampleTimes[history] = event.getEventTime();
+                    addSamples(mSampleXs, mSampleYs, mSampleTimes, 0, history + 1);
                 }
                 break;
             }
             case MotionEvent.ACTION_UP: {
-                if (mGesturePoints != null) {
-                    // classify the points in mGesturePoints, emit token
-                    GestureType type = classify(event.getEventTime());
-                    if (!mGesturePoints.isEmpty()) {
-                        mGestureListener.gesture(type, mDownX, mDownY, event.getX(), event
-                                .getY(), mGesturePoints);
-                    }
-                }
-                float x = event.getX();
-                float y = event.getY();
+                endGesture(event.getX(), event.getY(), event.getEventTime());
                 break;
             }
             default: {
@@ -173,156 +334,6 @@ public class GestureParser implements View.OnTouchListener, View.OnClickListener
         return false;
     }
 
-    /**
-     * Return the velocity of movement averaged across the entire gesture, in points per millisecond.
-     *
-     * @param upTime the time of the "up" event that ended the gesture
-     * @return the velocity in points per millisecond
-     */
-    private float velocity(long upTime) {
-        float distanceTraveledX = 0;
-        float distanceTraveledY = 0;
-        float lastX = mDownX;
-        float lastY = mDownY;
-        for (FPoint pt : mGesturePoints) {
-            distanceTraveledX += Math.abs(pt.getX() - lastX);
-            distanceTraveledY += Math.abs(pt.getY() - lastY);
-            lastX = pt.getX();
-            lastY = pt.getY();
-        }
-
-        float distance = (float)Math.sqrt((distanceTraveledX * distanceTraveledX) +
-                                          (distanceTraveledY * distanceTraveledY));
-        return distance / (upTime - mGestureStartTime);
-    }
-
-    /**
-     * Classify the gesture, if possible
-     * @param upTime the time at which the touch ended
-     */
-    private GestureType classify(long upTime) {
-        if (mGesturePoints.size() < FEW_ENOUGH_POINTS_TO_BE_A_CLICK) {
-            return GestureType.CLICK;
-        }
-        GestureBoundingBox box = new GestureBoundingBox(mGesturePoints);
-
-        FPoint lastPoint = analyzePoints();
-
-        if (mDotProductReverses >= ENOUGH_REVERSES_TO_BE_RUB_OUT) {
-            return GestureType.RUB_OUT;
-        }
-
-        if (Math.abs(mSumOfAngles) >= CIRCLE_RADIANS * PORTION_OF_A_CIRCLE_TO_BE_CLOSED) {
-            if (mDirectionClockwise) {
-                return GestureType.SPIRAL_CLOCKWISE;
-            } else {
-                return GestureType.SPIRAL_COUNTERCLOCKWISE;
-            }
-        }
-
-        boolean narrow = box.isNarrow();
-        if (narrow) {
-            float v = velocity(upTime);
-            FPoint firstPoint = mGesturePoints.get(0);
-            if (v <= FLICK_THRESHOLD) {
-                if (box.isShort()) {
-                    if (firstPoint.getX() < lastPoint.getX()) {
-                        return GestureType.SWIPE_RIGHT;
-                    } else {
-                        return GestureType.SWIPE_LEFT;
-                    }
-                } else {
-                    if (firstPoint.getY() < lastPoint.getY()) {
-                        return GestureType.SWIPE_DOWN;
-                    } else {
-                        return GestureType.SWIPE_UP;
-                    }
-                }
-            } else {
-                if (box.isShort()) {
-                    if (firstPoint.getX() < lastPoint.getX()) {
-                        return GestureType.FLICK_RIGHT;
-                    } else {
-                        return GestureType.FLICK_LEFT;
-                    }
-                } else {
-                    if (firstPoint.getY() < lastPoint.getY()) {
-                        return GestureType.FLICK_DOWN;
-                    } else {
-                        return GestureType.FLICK_UP;
-                    }
-                }
-            }
-        }
-
-        return GestureType.UNKNOWN;
-    }
-
-    /**
-     * Analyze the points so we have the data necessary for classification.  Sets various
-     * instance variables with the data we need.
-     * @return the last point in the set
-     */
-    private FPoint analyzePoints() {
-        Iterator<FPoint> i = mGesturePoints.iterator();
-        FPoint firstPoint = i.next();
-        FPoint secondPoint = i.next();
-        FPoint vector0 = secondPoint.subtract(firstPoint);
-        FPoint lastPoint = i.next();
-        FPoint vector1 = lastPoint.subtract(secondPoint);
-
-        float dotProduct =
-                SomeMath.dotProduct(vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-        float crossProduct =
-                SomeMath.crossProduct(vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-        float angle =
-                SomeMath.angleBetween(dotProduct, crossProduct, vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-        // if the sign of the dot product reverses a lot, it's a cross-out
-        mDotProductReverses = 0;
-
-        // sum of the angles
-        mSumOfAngles = angle;
-
-        mNumVectors = 2;
-
-        boolean dotProductWasPositive = dotProduct > 0;
-
-        while (i.hasNext()) {
-            final FPoint p = i.next();
-
-            vector0 = vector1;
-            vector1 = p.subtract(lastPoint);
-            lastPoint = p;
-
-            mNumVectors++;
-            dotProduct =
-                    SomeMath.dotProduct(vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-            crossProduct =
-                    SomeMath.crossProduct(vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-            angle =
-                    SomeMath.angleBetween(dotProduct, crossProduct, vector0.getX(), vector0.getY(), vector1.getX(), vector1.getY());
-            if (!Float.isNaN(angle)) {
-                mSumOfAngles += angle;
-            }
-
-            if (dotProduct > 0) {
-                if (!dotProductWasPositive) {
-                    mDotProductReverses++;
-                    dotProductWasPositive = true;
-                }
-            } else if (dotProduct < 0) {
-                if (dotProductWasPositive) {
-                    mDotProductReverses++;
-                    dotProductWasPositive = false;
-                }
-            }
-        }
-
-        mDirectionClockwise = mSumOfAngles > 0;
-
-        return lastPoint;
-    }
-
     /**
      * (Copied from Android API 19 MotionEvent.actionToString source code.)
      * For debugging only.
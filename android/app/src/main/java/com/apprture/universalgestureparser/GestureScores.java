@@ -0,0 +1,138 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * A score between 0 and 1 for every {@link com.apprture.universalgestureparser.GestureType},
+ * filled in by {@link GestureClassifier#score}.  The scores of all the types add up to 1.
+ * <p>
+ * Unlike {@link GestureClassifier#classify}, which picks one type or gives up with
+ * {@link GestureType#UNKNOWN}, the scores show how close a stroke came to each type, so a
+ * slightly curved swipe still ranks the swipe highly.
+ * <p>
+ * Meant to be reused: filling in the scores for a new stroke doesn't allocate.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureScores {
+
+    private static final GestureType[] TYPES = GestureType.values();
+
+    private final float[] mScores = new float[TYPES.length];
+
+    /**
+     * The ordinals of the types, best first.
+     */
+    private final int[] mRanking = new int[TYPES.length];
+
+    /**
+     * Is mRanking up to date with mScores?
+     */
+    private boolean mRanked;
+
+    /**
+     * Create a set of scores, all zero.
+     */
+    public GestureScores() {
+        clear();
+    }
+
+    /**
+     * Set all the scores to zero.
+     */
+    public void clear() {
+        for (int i = 0; i < mScores.length; i++) {
+            mScores[i] = 0;
+        }
+        mRanked = false;
+    }
+
+    /**
+     * Set the score of a type.
+     * @param type the type
+     * @param score the score
+     */
+    void setScore(GestureType type, float score) {
+        mScores[type.ordinal()] = score;
+        mRanked = false;
+    }
+
+    /**
+     * Return the score of a type.
+     * @param type the type
+     * @return the score, from 0 to 1
+     */
+    public float getScore(GestureType type) {
+        return mScores[type.ordinal()];
+    }
+
+    /**
+     * Return the type with the highest score.
+     * @return the best type
+     */
+    public GestureType getBest() {
+        return getRanked(0);
+    }
+
+    /**
+     * Return the type at the given rank.
+     * @param rank the rank, where 0 is the best
+     * @return the type
+     */
+    public GestureType getRanked(int rank) {
+        rank();
+        return TYPES[mRanking[rank]];
+    }
+
+    /**
+     * Copy the best types, best first, into an array.
+     * @param k the number of types wanted
+     * @param out the array to fill, at least <tt>k</tt> long
+     * @return the number of types copied, which is <tt>k</tt> unless there are fewer types
+     */
+    public int topK(int k, GestureType[] out) {
+        rank();
+        int n = Math.min(k, mRanking.length);
+        for (int i = 0; i < n; i++) {
+            out[i] = TYPES[mRanking[i]];
+        }
+        return n;
+    }
+
+    /**
+     * Bring mRanking up to date with an insertion sort; there are only a handful of types.
+     */
+    private void rank() {
+        if (mRanked) {
+            return;
+        }
+        for (int i = 0; i < mRanking.length; i++) {
+            int ordinal = i;
+            int j = i;
+            while (j > 0 && mScores[mRanking[j - 1]] < mScores[ordinal]) {
+                mRanking[j] = mRanking[j - 1];
+                j--;
+            }
+            mRanking[j] = ordinal;
+        }
+        mRanked = true;
+    }
+
+    @Override
+    public String toString() {
+        rank();
+        final StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < mRanking.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(TYPES[mRanking[i]]).append('=').append(mScores[mRanking[i]]);
+        }
+        sb.append('}');
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,424 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A {@link com.apprture.universalgestureparser.GestureListener} that routes each gesture to
+ * the listeners of the regions (targets) it falls on, so that many gesture-sensitive regions
+ * can share one view.
+ * <p>
+ * Targets are rectangles, indexed by a uniform grid of square cells: each target is listed in
+ * every cell it overlaps.  Finding the targets under a point looks at one cell, and finding
+ * those under a gesture's bounding box looks only at the cells the box covers, so the cost
+ * depends on how crowded the area is, not on how many targets there are.  Adding, moving and
+ * removing a target touch only the cells it covers.  Choose a cell size close to that of a
+ * typical target.
+ * <p>
+ * The points of a gesture in progress go to the targets under the point where it began, looked
+ * up once per gesture, so they don't jump from target to target as the stroke moves.  To know
+ * that point the registry has to be told when a gesture begins: pass it to
+ * {@link GestureParser#setBeginListener}.  (If it isn't told, it falls back on the first point
+ * the parser reports, which may lie a few pixels along the stroke.)  The finished gesture goes
+ * to exactly the targets chosen by the {@link Routing}.  With {@link Routing#START_POINT} and
+ * {@link Routing#BOUNDING_BOX} those include every target that got the points; with
+ * {@link Routing#END_POINT} a gesture that ends outside the targets it began on isn't
+ * delivered to them.
+ * <p>
+ * Not thread-safe; use it on the UI thread.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureTargetRegistry implements GestureListener, GestureBeginListener {
+
+    /**
+     * Which part of a gesture decides where it goes.
+     */
+    public enum Routing {
+        /**
+         * Targets that contain the point where the gesture started.
+         */
+        START_POINT,
+
+        /**
+         * Targets that contain the point where the gesture ended.
+         */
+        END_POINT,
+
+        /**
+         * Targets that intersect the gesture's bounding box.
+         */
+        BOUNDING_BOX
+    }
+
+    /**
+     * A rectangular region and the listener that gets the gestures made on it.
+     */
+    public static class Target {
+
+        private final GestureListener mListener;
+
+        private float mLeft;
+
+        private float mTop;
+
+        private float mRight;
+
+        private float mBottom;
+
+        /**
+         * The query that last found this target, so a target found in several cells is only
+         * reported once.
+         */
+        private int mStamp;
+
+        /**
+         * Create a target.  Use {@link GestureTargetRegistry#addTarget} rather than calling this.
+         * @param listener the listener for gestures on the target
+         */
+        private Target(GestureListener listener) {
+            mListener = listener;
+        }
+
+        /**
+         * Return the listener.
+         * @return the listener
+         */
+        public GestureListener getListener() {
+            return mListener;
+        }
+
+        /**
+         * Does the target contain a point?
+         * @param x the X coordinate
+         * @param y the Y coordinate
+         * @return true if it does
+         */
+        private boolean contains(float x, float y) {
+            return x >= mLeft && x < mRight && y >= mTop && y < mBottom;
+        }
+
+        /**
+         * Does the target intersect a rectangle?
+         * @param left the left edge
+         * @param top the top edge
+         * @param right the right edge (inclusive)
+         * @param bottom the bottom edge (inclusive)
+         * @return true if it does
+         */
+        private boolean intersects(float left, float top, float right, float bottom) {
+            return left < mRight && right >= mLeft && top < mBottom && bottom >= mTop;
+        }
+
+    }
+
+    private final float mCellSize;
+
+    private final Routing mRouting;
+
+    /**
+     * The targets overlapping each cell, keyed by the cell's packed column and row.
+     */
+    private final HashMap<Long, ArrayList<Target>> mCells = new HashMap<Long, ArrayList<Target>>();
+
+    private int mStamp;
+
+    /*
+     * The range of cells any target has ever covered, which bounds the cells a query visits.
+     */
+
+    private int mMinColumn = Integer.MAX_VALUE;
+
+    private int mMaxColumn = Integer.MIN_VALUE;
+
+    private int mMinRow = Integer.MAX_VALUE;
+
+    private int mMaxRow = Integer.MIN_VALUE;
+
+    /**
+     * The targets getting the points of the gesture in progress, or null if no points have
+     * arrived since the last gesture.
+     */
+    private List<Target> mActiveTargets;
+
+    /**
+     * Create an empty registry.
+     * @param cellSize the size of a grid cell, in pixels
+     * @param routing which part of a gesture decides where it goes
+     */
+    public GestureTargetRegistry(float cellSize, Routing routing) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("cell size must be positive");
+        }
+        mCellSize = cellSize;
+        mRouting = routing;
+    }
+
+    /**
+     * Add a target.  Targets may overlap; a gesture on the overlap goes to all of them.
+     * @param left the left edge
+     * @param top the top edge
+     * @param right the right edge (exclusive)
+     * @param bottom the bottom edge (exclusive)
+     * @param listener the listener for gestures on the target
+     * @return the target, to pass to {@link #moveTarget} or {@link #removeTarget}
+     * @throws IllegalArgumentException if the bounds aren't finite and in order, or are too
+     * far out to index
+     */
+    public Target addTarget(float left, float top, float right, float bottom,
+                            GestureListener listener) {
+        checkBounds(left, top, right, bottom);
+        Target target = new Target(listener);
+        place(target, left, top, right, bottom);
+        return target;
+    }
+
+    /**
+     * Move or resize a target.
+     * @param target the target
+     * @param left the new left edge
+     * @param top the new top edge
+     * @param right the new right edge (exclusive)
+     * @param bottom the new bottom edge (exclusive)
+     * @throws IllegalArgumentException if the bounds aren't finite and in order, or are too
+     * far out to index
+     */
+    public void moveTarget(Target target, float left, float top, float right, float bottom) {
+        checkBounds(left, top, right, bottom);
+        unplace(target);
+        place(target, left, top, right, bottom);
+    }
+
+    /**
+     * Remove a target.  If it's getting the points of a gesture in progress, it gets no more of
+     * them, nor the gesture.
+     * @param target the target
+     */
+    public void removeTarget(Target target) {
+        unplace(target);
+        if (mActiveTargets != null) {
+            mActiveTargets.remove(target);
+        }
+    }
+
+    /**
+     * Take a target out of the cells it overlaps.
+     * @param target the target
+     */
+    private void unplace(Target target) {
+        int minColumn = cell(target.mLeft);
+        int maxColumn = cell(target.mRight);
+        int minRow = cell(target.mTop);
+        int maxRow = cell(target.mBottom);
+        for (int column = minColumn; column <= maxColumn; column++) {
+            for (int row = minRow; row <= maxRow; row++) {
+                Long key = key(column, row);
+                ArrayList<Target> targets = mCells.get(key);
+                if (targets != null) {
+                    targets.remove(target);
+                    if (targets.isEmpty()) {
+                        mCells.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the targets that contain a point.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param out receives the targets
+     */
+    public void findTargets(float x, float y, List<Target> out) {
+        ArrayList<Target> targets = mCells.get(key(cell(x), cell(y)));
+        if (targets == null) {
+            return;
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            Target target = targets.get(i);
+            if (target.contains(x, y)) {
+                out.add(target);
+            }
+        }
+    }
+
+    /**
+     * Find the targets that intersect a rectangle.
+     * @param left the left edge
+     * @param top the top edge
+     * @param right the right edge (inclusive)
+     * @param bottom the bottom edge (inclusive)
+     * @param out receives the targets
+     */
+    public void findTargets(float left, float top, float right, float bottom, List<Target> out) {
+        int stamp = ++mStamp;
+        // no target lies outside the cells ever covered, so don't look there
+        int minColumn = Math.max(cell(left), mMinColumn);
+        int maxColumn = Math.min(cell(right), mMaxColumn);
+        int minRow = Math.max(cell(top), mMinRow);
+        int maxRow = Math.min(cell(bottom), mMaxRow);
+        for (int column = minColumn; column <= maxColumn; column++) {
+            for (int row = minRow; row <= maxRow; row++) {
+                ArrayList<Target> targets = mCells.get(key(column, row));
+                if (targets == null) {
+                    continue;
+                }
+                for (int i = 0; i < targets.size(); i++) {
+                    Target target = targets.get(i);
+                    if (target.mStamp != stamp && target.intersects(left, top, right, bottom)) {
+                        target.mStamp = stamp;
+                        out.add(target);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up the targets that will get the points of the gesture that has just begun.
+     * @param x the X coordinate where it began
+     * @param y the Y coordinate where it began
+     * @param time the time it began, in milliseconds
+     */
+    @Override
+    public void gestureBegan(float x, float y, long time) {
+        mActiveTargets = new ArrayList<Target>();
+        findTargets(x, y, mActiveTargets);
+    }
+
+    @Override
+    public void gesture(GestureType type, float startX, float startY, float endX, float endY,
+                        List<FPoint> points) {
+        mActiveTargets = null;
+        List<Target> targets = new ArrayList<Target>();
+        switch (mRouting) {
+            case START_POINT:
+                findTargets(startX, startY, targets);
+                break;
+            case END_POINT:
+                findTargets(endX, endY, targets);
+                break;
+            case BOUNDING_BOX: {
+                float minX = Math.min(startX, endX);
+                float maxX = Math.max(startX, endX);
+                float minY = Math.min(startY, endY);
+                float maxY = Math.max(startY, endY);
+                for (FPoint p : points) {
+                    minX = Math.min(minX, p.getX());
+                    maxX = Math.max(maxX, p.getX());
+                    minY = Math.min(minY, p.getY());
+                    maxY = Math.max(maxY, p.getY());
+                }
+                findTargets(minX, minY, maxX, maxY, targets);
+                break;
+            }
+        }
+        for (Target target : targets) {
+            target.mListener.gesture(type, startX, startY, endX, endY, points);
+        }
+    }
+
+    /**
+     * Pass points along to the targets under the point where the gesture began, looked up when
+     * it began and reused until it ends.  If {@link #gestureBegan} wasn't called, the first
+     * point reported stands in for where the gesture began.
+     * @param points points along the path the user has traced
+     */
+    @Override
+    public void points(List<FPoint> points) {
+        if (mActiveTargets == null) {
+            if (points.isEmpty()) {
+                return;
+            }
+            FPoint p = points.get(0);
+            mActiveTargets = new ArrayList<Target>();
+            findTargets(p.getX(), p.getY(), mActiveTargets);
+        }
+        for (int i = 0; i < mActiveTargets.size(); i++) {
+            mActiveTargets.get(i).mListener.points(points);
+        }
+    }
+
+    /**
+     * Record a target's bounds and list it in the cells it overlaps.
+     * @param target the target
+     * @param left the left edge
+     * @param top the top edge
+     * @param right the right edge
+     * @param bottom the bottom edge
+     */
+    private void place(Target target, float left, float top, float right, float bottom) {
+        target.mLeft = left;
+        target.mTop = top;
+        target.mRight = right;
+        target.mBottom = bottom;
+        int minColumn = cell(left);
+        int maxColumn = cell(right);
+        int minRow = cell(top);
+        int maxRow = cell(bottom);
+        mMinColumn = Math.min(mMinColumn, minColumn);
+        mMaxColumn = Math.max(mMaxColumn, maxColumn);
+        mMinRow = Math.min(mMinRow, minRow);
+        mMaxRow = Math.max(mMaxRow, maxRow);
+        for (int column = minColumn; column <= maxColumn; column++) {
+            for (int row = minRow; row <= maxRow; row++) {
+                Long key = key(column, row);
+                ArrayList<Target> targets = mCells.get(key);
+                if (targets == null) {
+                    targets = new ArrayList<Target>(2);
+                    mCells.put(key, targets);
+                }
+                targets.add(target);
+            }
+        }
+    }
+
+    /**
+     * Make sure a target's bounds can be indexed: finite, in order, and within the range of
+     * cells, so that walking its cells terminates.
+     * @param left the left edge
+     * @param top the top edge
+     * @param right the right edge
+     * @param bottom the bottom edge
+     * @throws IllegalArgumentException if they can't
+     */
+    private void checkBounds(float left, float top, float right, float bottom) {
+        if (!(left <= right && top <= bottom) || Float.isInfinite(left) ||
+                Float.isInfinite(top) || Float.isInfinite(right) || Float.isInfinite(bottom)) {
+            throw new IllegalArgumentException("bad target bounds " + left + ", " + top + ", " +
+                                               right + ", " + bottom);
+        }
+        if (cell(left) == Integer.MIN_VALUE || cell(top) == Integer.MIN_VALUE ||
+                cell(right) == Integer.MAX_VALUE || cell(bottom) == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("target bounds too far out " + left + ", " + top +
+                                               ", " + right + ", " + bottom);
+        }
+    }
+
+    /**
+     * Return the column or row of the cell containing a coordinate.
+     * @param coordinate an X or Y coordinate
+     * @return the column or row
+     */
+    private int cell(float coordinate) {
+        return (int)Math.floor(coordinate / mCellSize);
+    }
+
+    /**
+     * Pack a column and row into a map key.
+     * @param column the column
+     * @param row the row
+     * @return the key
+     */
+    private static Long key(int column, int row) {
+        return ((long)column << 32) | (row & 0xFFFFFFFFL);
+    }
+
+}
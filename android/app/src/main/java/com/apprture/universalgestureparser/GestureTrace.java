@@ -0,0 +1,202 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Marks the stages of gesture recognition as sections in a trace.  On a device they go to the
+ * system trace, so they show up in systrace and Perfetto next to garbage collection, input
+ * dispatch and rendering.
+ * <p>
+ * Tracing is off until {@link #setEnabled(boolean)} turns on the system trace, which needs API
+ * level 18, or {@link #setBackend} installs some other {@link Backend}, e.g. one that records
+ * Java Flight Recorder events when the recognizer runs offline on a desktop JVM.  Nothing here
+ * touches the Android classes unless <tt>setEnabled(true)</tt> is called, so the recognizer
+ * still runs where they don't exist.  While tracing is off, each probe costs one read of a
+ * static field.  Section names that include a
+ * point count or gesture type are only built while tracing is on.  Sections nest, and each
+ * records its own duration.  {@link #mark} records an instant rather than a duration, e.g. the
+ * moment a gesture is handed to the listener, whose own work isn't the recognizer's.
+ * <p>
+ * Usage:
+ * <pre>
+ *     boolean traced = GestureTrace.begin(GestureTrace.VELOCITY);
+ *     ...
+ *     GestureTrace.end(traced);
+ * </pre>
+ *
+ * @author Herb Jellinek
+ */
+public class GestureTrace {
+
+    /*
+     * Section names.
+     */
+
+    public static final String GESTURE_START = "UGP gesture start";
+
+    public static final String ADD_SAMPLES = "UGP addSamples";
+
+    public static final String ANALYZE_POINTS = "UGP analyzePoints";
+
+    public static final String CLASSIFY = "UGP classify";
+
+    public static final String BOUNDING_BOX = "UGP bounding box";
+
+    public static final String VELOCITY = "UGP velocity";
+
+    public static final String DECISION = "UGP decision";
+
+    /**
+     * A marker, not a section: the gesture has been recognized and is about to go to the
+     * listener.
+     */
+    public static final String GESTURE_EMITTED = "UGP gesture";
+
+    /**
+     * Somewhere to send trace sections.
+     */
+    public interface Backend {
+
+        /**
+         * Begin a section.  Sections nest.
+         * @param name the name of the section
+         */
+        public void beginSection(String name);
+
+        /**
+         * End the innermost section.
+         */
+        public void endSection();
+
+    }
+
+    /**
+     * Where sections go, or null if tracing is off.
+     */
+    private static volatile Backend sBackend;
+
+    /**
+     * You can't instantiate one of these.
+     */
+    private GestureTrace() {
+    }
+
+    /**
+     * Turn tracing to the system trace on or off.  Turning it on has no effect below API level
+     * 18 or off Android.
+     * @param enabled true to emit trace sections
+     */
+    public static void setEnabled(boolean enabled) {
+        Backend backend = null;
+        if (enabled) {
+            try {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                    backend = new SystemTrace();
+                }
+            } catch (NoClassDefFoundError e) {
+                // not on Android
+            }
+        }
+        sBackend = backend;
+    }
+
+    /**
+     * Send trace sections somewhere other than the system trace.  Change backends only between
+     * gestures, so no section is begun on one and ended on another.
+     * @param backend the backend, or null to turn tracing off
+     */
+    public static void setBackend(Backend backend) {
+        sBackend = backend;
+    }
+
+    /**
+     * Is tracing on?
+     * @return true if trace sections are being emitted
+     */
+    public static boolean isEnabled() {
+        return sBackend != null;
+    }
+
+    /**
+     * Begin a section, if tracing is on.
+     * @param name the name of the section
+     * @return true if a section was begun; pass this to {@link #end(boolean)}
+     */
+    public static boolean begin(String name) {
+        Backend backend = sBackend;
+        if (backend == null) {
+            return false;
+        }
+        backend.beginSection(name);
+        return true;
+    }
+
+    /**
+     * Begin a section whose name carries a point count, if tracing is on.
+     * @param name the name of the section
+     * @param points the number of points
+     * @return true if a section was begun; pass this to {@link #end(boolean)}
+     */
+    public static boolean begin(String name, int points) {
+        Backend backend = sBackend;
+        if (backend == null) {
+            return false;
+        }
+        backend.beginSection(name + " points=" + points);
+        return true;
+    }
+
+    /**
+     * End the section begun by the matching call to <tt>begin</tt>.
+     * @param begun what <tt>begin</tt> returned
+     */
+    public static void end(boolean begun) {
+        Backend backend = sBackend;
+        if (begun && backend != null) {
+            backend.endSection();
+        }
+    }
+
+    /**
+     * Record an instant, carrying a gesture type and point count, if tracing is on.  It shows up
+     * as a section of no length.
+     * @param name the name of the marker
+     * @param type the gesture type
+     * @param points the number of points
+     */
+    public static void mark(String name, GestureType type, int points) {
+        Backend backend = sBackend;
+        if (backend != null) {
+            backend.beginSection(name + " " + type + " points=" + points);
+            backend.endSection();
+        }
+    }
+
+    /**
+     * The system trace, {@link android.os.Trace}.  Kept apart so that Lint knows it's only used
+     * on API level 18 and up; it's only created once {@link #setEnabled(boolean)} has checked
+     * the API level.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static class SystemTrace implements Backend {
+
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+
+    }
+
+}
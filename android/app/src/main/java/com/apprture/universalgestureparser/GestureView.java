@@ -36,6 +36,13 @@ public class GestureView extends View {
         GESTURE_PAINT.setStyle(Paint.Style.STROKE);
     }
 
+    private static final Paint PREDICTION_PAINT = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    static {
+        PREDICTION_PAINT.setColor(Color.LTGRAY);
+        PREDICTION_PAINT.setStyle(Paint.Style.STROKE);
+    }
+
     private static final Paint TEXT_PAINT = new Paint(Paint.ANTI_ALIAS_FLAG);
 
     static {
@@ -44,6 +51,18 @@ public class GestureView extends View {
 
     private Path mPath = new Path();
 
+    /**
+     * The provisional tail of predicted points, drawn after the real points until more real
+     * points arrive.
+     */
+    private Path mPredictionPath = new Path();
+
+    private boolean mHaveLastPoint;
+
+    private float mLastX;
+
+    private float mLastY;
+
     /**
      * Mandatory constructor.  This is invoked from the layout file.
      * @param context the current context
@@ -77,6 +96,8 @@ public class GestureView extends View {
      */
     public void clearPath() {
         mPath = new Path();
+        mPredictionPath.reset();
+        mHaveLastPoint = false;
     }
 
     /**
@@ -92,6 +113,30 @@ public class GestureView extends View {
         for (FPoint p : points) {
             mPath.lineTo(p.getX(), p.getY());
         }
+        FPoint lastPoint = points.get(points.size() - 1);
+        mLastX = lastPoint.getX();
+        mLastY = lastPoint.getY();
+        mHaveLastPoint = true;
+        // real points replace the prediction
+        mPredictionPath.reset();
+    }
+
+    /**
+     * Show predicted points as a provisional tail on the current set.  They're replaced by the
+     * next call to {@link #addPoints(java.util.List)} or {@link #setPrediction}.
+     * @param xs the X coordinates of the predicted points
+     * @param ys the Y coordinates of the predicted points
+     * @param count the number of predicted points
+     */
+    public void setPrediction(float[] xs, float[] ys, int count) {
+        mPredictionPath.reset();
+        if (!mHaveLastPoint || count == 0) {
+            return;
+        }
+        mPredictionPath.moveTo(mLastX, mLastY);
+        for (int i = 0; i < count; i++) {
+            mPredictionPath.lineTo(xs[i], ys[i]);
+        }
     }
 
     /**
@@ -102,6 +147,7 @@ public class GestureView extends View {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         canvas.drawPath(mPath, GESTURE_PAINT);
+        canvas.drawPath(mPredictionPath, PREDICTION_PAINT);
     }
 
 }
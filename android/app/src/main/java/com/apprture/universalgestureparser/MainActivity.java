@@ -20,10 +20,26 @@ public class MainActivity extends ActionBarActivity {
      */
     private static final String TAG = "MainActivity";
 
+    /**
+     * How many points of ink to draw ahead of the finger.
+     */
+    private static final int PREDICTED_POINTS = 3;
+
+    /**
+     * The time between predicted points: about one frame.
+     */
+    private static final long PREDICTION_INTERVAL_MILLIS = 16;
+
     private GestureView mGestureView;
 
     private TextView mGestureLabel;
 
+    private StrokePredictor mPredictor = new StrokePredictor();
+
+    private float[] mPredictedXs = new float[PREDICTED_POINTS];
+
+    private float[] mPredictedYs = new float[PREDICTED_POINTS];
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -44,12 +60,19 @@ public class MainActivity extends ActionBarActivity {
             @Override
             public void points(List<FPoint> points) {
                 mGestureView.addPoints(points);
+                if (!points.isEmpty()) {
+                    // the parser has already fed the predictor the new points
+                    int count = mPredictor.predict(PREDICTED_POINTS, PREDICTION_INTERVAL_MILLIS,
+                                                   mPredictedXs, mPredictedYs);
+                    mGestureView.setPrediction(mPredictedXs, mPredictedYs, count);
+                }
                 mGestureView.invalidate();
             }
         };
 
         // This is where we hook in the gesture parser
         final GestureParser listener = new GestureParser(gestureListener);
+        listener.setPredictor(mPredictor);
         mGestureView = (GestureView)findViewById(R.id.gesture_view);
         listener.listenToView(mGestureView);
     }
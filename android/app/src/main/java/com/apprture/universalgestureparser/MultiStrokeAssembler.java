@@ -0,0 +1,350 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Groups consecutive strokes into multi-stroke symbols, e.g. the two flicks of an "X."
+ * <p>
+ * A stroke joins the open group of its session if it starts soon enough after the group's last
+ * stroke ended and close enough to the group's bounding box; otherwise the open group is
+ * finished and the stroke starts a new one.  A group is also finished when no stroke has joined
+ * it for the allowed gap.  The symbol a finished group makes is recognized by matching the
+ * sequence of its strokes' {@link com.apprture.universalgestureparser.GestureType}s against a
+ * {@link com.apprture.universalgestureparser.GestureAutomaton}, and the group and the symbol go
+ * to the {@link com.apprture.universalgestureparser.MultiStrokeAssembler.Listener}.
+ * <p>
+ * A group mustn't expire while its next stroke is being drawn, so call
+ * {@link #beginStroke} when a stroke starts (on <tt>ACTION_DOWN</tt>) as well as
+ * {@link #addStroke} when it ends: if the stroke will join the open group, the group is held
+ * open until the stroke is added.
+ * <p>
+ * Each session (a view, a pointer, a remote user...) has its own open group.  Groups waiting
+ * to expire are kept in a {@link com.apprture.universalgestureparser.TimingWheel}, so adding a
+ * stroke and each call to {@link #advance(long)} cost constant time however many sessions have
+ * groups open.
+ * <p>
+ * Not thread-safe.
+ *
+ * @param <C> the type of the symbols
+ * @author Herb Jellinek
+ */
+public class MultiStrokeAssembler<C> {
+
+    private static final int WHEEL_SLOTS = 256;
+
+    private static final long TICK_MILLIS = 10;
+
+    /**
+     * Receives finished groups of strokes.
+     *
+     * @param <C> the type of the symbols
+     */
+    public interface Listener<C> {
+
+        /**
+         * A group of strokes is finished.
+         * @param session the session the strokes came from
+         * @param group the strokes
+         * @param symbol the symbol whose rule matches the types of the strokes, or null if none
+         *               does
+         */
+        public void strokeGroup(Object session, StrokeGroup group, C symbol);
+
+    }
+
+    /**
+     * The strokes that make up one symbol, in the order they were drawn.
+     */
+    public static class StrokeGroup {
+
+        private final List<List<FPoint>> mStrokes = new ArrayList<List<FPoint>>();
+
+        private final List<GestureType> mTypes = new ArrayList<GestureType>();
+
+        private long mStartTime;
+
+        private long mEndTime;
+
+        private float mMinX = Float.MAX_VALUE;
+
+        private float mMinY = Float.MAX_VALUE;
+
+        private float mMaxX = -Float.MAX_VALUE;
+
+        private float mMaxY = -Float.MAX_VALUE;
+
+        /**
+         * Return the strokes.
+         * @return an unmodifiable list of the strokes' points
+         */
+        public List<List<FPoint>> getStrokes() {
+            return Collections.unmodifiableList(mStrokes);
+        }
+
+        /**
+         * Return the type each stroke was recognized as.
+         * @return an unmodifiable list of types, parallel to {@link #getStrokes()}
+         */
+        public List<GestureType> getTypes() {
+            return Collections.unmodifiableList(mTypes);
+        }
+
+        /**
+         * Return the time the first stroke started.
+         * @return the time, in milliseconds
+         */
+        public long getStartTime() {
+            return mStartTime;
+        }
+
+        /**
+         * Return the time the last stroke ended.
+         * @return the time, in milliseconds
+         */
+        public long getEndTime() {
+            return mEndTime;
+        }
+
+        /**
+         * Return the bounding box of all the strokes.
+         * @return a new {@link com.apprture.universalgestureparser.GestureBoundingBox}
+         */
+        public GestureBoundingBox getBoundingBox() {
+            return new GestureBoundingBox(mMinX, mMinY, mMaxX, mMaxY);
+        }
+
+        /**
+         * Add a stroke.
+         * @param type the stroke's type
+         * @param points the stroke's points
+         * @param startX the X coordinate where the stroke started
+         * @param startY the Y coordinate where the stroke started
+         * @param startTime the time the stroke started
+         * @param endTime the time the stroke ended
+         */
+        private void add(GestureType type, List<FPoint> points, float startX, float startY,
+                         long startTime, long endTime) {
+            if (mStrokes.isEmpty()) {
+                mStartTime = startTime;
+            }
+            mEndTime = endTime;
+            mStrokes.add(points);
+            mTypes.add(type);
+            include(startX, startY);
+            for (FPoint p : points) {
+                include(p.getX(), p.getY());
+            }
+        }
+
+        /**
+         * Grow the bounding box to include a point.
+         * @param x the X coordinate
+         * @param y the Y coordinate
+         */
+        private void include(float x, float y) {
+            mMinX = Math.min(mMinX, x);
+            mMinY = Math.min(mMinY, y);
+            mMaxX = Math.max(mMaxX, x);
+            mMaxY = Math.max(mMaxY, y);
+        }
+
+        /**
+         * Return the distance from a point to the bounding box, 0 if it's inside.
+         * @param x the X coordinate
+         * @param y the Y coordinate
+         * @return the distance
+         */
+        private float distanceTo(float x, float y) {
+            float dx = Math.max(0, Math.max(mMinX - x, x - mMaxX));
+            float dy = Math.max(0, Math.max(mMinY - y, y - mMaxY));
+            return SomeMath.length(dx, dy);
+        }
+
+    }
+
+    /**
+     * The open group of a session, waiting in the wheel to expire.
+     */
+    private class PendingGroup extends TimingWheel.Timeout {
+
+        private final Object mSession;
+
+        private final StrokeGroup mGroup = new StrokeGroup();
+
+        /**
+         * Create an empty group.
+         * @param session the session it belongs to
+         */
+        PendingGroup(Object session) {
+            mSession = session;
+        }
+
+        @Override
+        protected void expire(long now) {
+            mPending.remove(mSession);
+            deliver(this);
+        }
+
+    }
+
+    private final long mMaxGapMillis;
+
+    private final float mMaxGapDistance;
+
+    private final GestureAutomaton<C> mSymbols;
+
+    private final Listener<C> mListener;
+
+    private final TimingWheel mWheel;
+
+    private final HashMap<Object, PendingGroup> mPending = new HashMap<Object, PendingGroup>();
+
+    /**
+     * Create an assembler.
+     * @param maxGapMillis the longest pause between strokes of one group, in milliseconds
+     * @param maxGapDistance the farthest a stroke may start from the group's bounding box
+     * @param symbols the rules that name the symbols, compiled from a
+     *                {@link com.apprture.universalgestureparser.GestureGrammar}
+     * @param listener receives the finished groups
+     * @param now the current time, in milliseconds
+     */
+    public MultiStrokeAssembler(long maxGapMillis, float maxGapDistance,
+                                GestureAutomaton<C> symbols, Listener<C> listener, long now) {
+        mMaxGapMillis = maxGapMillis;
+        mMaxGapDistance = maxGapDistance;
+        mSymbols = symbols;
+        mListener = listener;
+        mWheel = new TimingWheel(WHEEL_SLOTS, TICK_MILLIS, now);
+    }
+
+    /**
+     * Note that a stroke has started.  This first expires any groups that were due before it
+     * started.  Then, if the stroke will join the session's open group, the group is held open
+     * until {@link #addStroke} or {@link #flush} is called for the session, however long the
+     * stroke takes; otherwise the group is finished now.
+     * @param session the session the stroke belongs to
+     * @param startX the X coordinate where the stroke started
+     * @param startY the Y coordinate where the stroke started
+     * @param startTime the time the stroke started, in milliseconds
+     */
+    public void beginStroke(Object session, float startX, float startY, long startTime) {
+        advanceBefore(startTime);
+        PendingGroup pending = mPending.get(session);
+        if (pending != null) {
+            if (joins(pending, startX, startY, startTime)) {
+                mWheel.cancel(pending);
+            } else {
+                finish(pending);
+            }
+        }
+    }
+
+    /**
+     * Add a finished stroke.  Whether it joins the session's open group depends on when and
+     * where it started, not on how long it took.  The assembler keeps the list of points, so
+     * don't change it afterwards.
+     * @param session the session the stroke belongs to
+     * @param type the type the stroke was recognized as
+     * @param points the stroke's points
+     * @param startX the X coordinate where the stroke started
+     * @param startY the Y coordinate where the stroke started
+     * @param startTime the time the stroke started, in milliseconds
+     * @param endTime the time the stroke ended, in milliseconds
+     */
+    public void addStroke(Object session, GestureType type, List<FPoint> points, float startX,
+                          float startY, long startTime, long endTime) {
+        advanceBefore(startTime);
+        PendingGroup pending = mPending.get(session);
+        if (pending != null && !joins(pending, startX, startY, startTime)) {
+            finish(pending);
+            pending = null;
+        }
+        if (pending == null) {
+            pending = new PendingGroup(session);
+            mPending.put(session, pending);
+        }
+        pending.mGroup.add(type, points, startX, startY, startTime, endTime);
+        mWheel.schedule(pending, endTime + mMaxGapMillis);
+        // catch up on other sessions' groups; this one isn't due until after endTime
+        mWheel.advance(endTime);
+    }
+
+    /**
+     * Finish every group that has gone the allowed gap without a new stroke.  Call this
+     * periodically, e.g. every few ticks from a {@link android.os.Handler}.
+     * @param now the current time, in milliseconds
+     */
+    public void advance(long now) {
+        mWheel.advance(now);
+    }
+
+    /**
+     * Finish a session's open group now, if it has one.
+     * @param session the session
+     */
+    public void flush(Object session) {
+        PendingGroup pending = mPending.get(session);
+        if (pending != null) {
+            finish(pending);
+        }
+    }
+
+    /**
+     * Return the number of groups still open.
+     * @return the number of sessions with an open group
+     */
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    /**
+     * Expire the groups that were due before a stroke started.  A group whose deadline is the
+     * very moment the stroke started still gets the stroke.
+     * @param startTime the time the stroke started, in milliseconds
+     */
+    private void advanceBefore(long startTime) {
+        mWheel.advance(startTime - 1);
+    }
+
+    /**
+     * Will a stroke join an open group?
+     * @param pending the group
+     * @param startX the X coordinate where the stroke started
+     * @param startY the Y coordinate where the stroke started
+     * @param startTime the time the stroke started, in milliseconds
+     * @return true if it started soon enough after the group's last stroke and close enough to
+     * the group
+     */
+    private boolean joins(PendingGroup pending, float startX, float startY, long startTime) {
+        return startTime - pending.mGroup.getEndTime() <= mMaxGapMillis &&
+                pending.mGroup.distanceTo(startX, startY) <= mMaxGapDistance;
+    }
+
+    /**
+     * Take a group out of the wheel and hand it to the listener.
+     * @param pending the group
+     */
+    private void finish(PendingGroup pending) {
+        mWheel.cancel(pending);
+        mPending.remove(pending.mSession);
+        deliver(pending);
+    }
+
+    /**
+     * Recognize a finished group's symbol and hand both to the listener.
+     * @param pending the group
+     */
+    private void deliver(PendingGroup pending) {
+        C symbol = mSymbols.match(pending.mGroup.mTypes);
+        mListener.strokeGroup(pending.mSession, pending.mGroup, symbol);
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * A read-only, indexed sequence of points.  This is what the
+ * {@link com.apprture.universalgestureparser.GestureClassifier} reads, so the points of a gesture
+ * can live in whatever storage suits the caller without being copied into
+ * {@link com.apprture.universalgestureparser.FPoint} objects first.
+ * <p>
+ * Implementations must make {@link #getX(int)} and {@link #getY(int)} constant-time.
+ *
+ * @author Herb Jellinek
+ */
+public interface PointSequence {
+
+    /**
+     * Return the number of points in the sequence.
+     * @return the number of points
+     */
+    public int size();
+
+    /**
+     * Return the X coordinate of a point.
+     * @param index the index of the point
+     * @return the X coordinate
+     */
+    public float getX(int index);
+
+    /**
+     * Return the Y coordinate of a point.
+     * @param index the index of the point
+     * @return the Y coordinate
+     */
+    public float getY(int index);
+
+}
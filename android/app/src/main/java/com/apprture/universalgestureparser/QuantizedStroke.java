@@ -0,0 +1,264 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * A compact, immutable stroke for keeping long histories (undo, replay) on devices with little
+ * memory.
+ * <p>
+ * Each coordinate is stored as an unsigned 16-bit step count from the stroke's upper left
+ * corner, using one scale for both axes so angles are preserved.  Each sample time is stored as
+ * an unsigned 16-bit number of milliseconds since the previous sample; the rare gap that doesn't
+ * fit is kept in a separate table.  The absolute time of every {@link #BLOCK_SIZE}th sample is
+ * kept too, so {@link #getTime(int)} only has to add up a few deltas.  That is about 6.4 bytes
+ * per point, or 4 when the times aren't known, against about 20 for an
+ * {@link com.apprture.universalgestureparser.FPoint} (a 16-byte object on ART) and its list
+ * reference, which don't even carry a time.
+ * <p>
+ * Precision: apart from float rounding, a coordinate is off by at most half a step, i.e. by at
+ * most <tt>max(width, height) / 131070</tt>, or under 0.01 pixel for a stroke 1000 pixels across.
+ * Times are exact.
+ * <p>
+ * This is a {@link com.apprture.universalgestureparser.PointSequence}, so
+ * {@link com.apprture.universalgestureparser.GestureClassifier} reads it directly; coordinates
+ * are decoded one at a time as they're read.
+ *
+ * @author Herb Jellinek
+ */
+public class QuantizedStroke implements PointSequence {
+
+    /**
+     * The number of steps across the larger dimension of the stroke.
+     */
+    private static final int STEPS = 0xFFFF;
+
+    /**
+     * log2 of {@link #BLOCK_SIZE}.
+     */
+    private static final int BLOCK_SHIFT = 5;
+
+    /**
+     * How many samples share one absolute time.
+     */
+    public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    /**
+     * The delta that means "too long (or negative) to fit; see the table of long gaps."
+     */
+    private static final int ESCAPE = 0xFFFF;
+
+    private final float mOriginX;
+
+    private final float mOriginY;
+
+    /**
+     * The size of one step, in pixels.
+     */
+    private final float mScale;
+
+    private final short[] mXs;
+
+    private final short[] mYs;
+
+    /**
+     * The time since the previous sample of each sample, or {@link #ESCAPE}; null if the times
+     * aren't known.
+     */
+    private final short[] mDeltas;
+
+    /**
+     * The absolute time of the first sample of each block.
+     */
+    private final long[] mBlockTimes;
+
+    /**
+     * The number of escaped deltas up to and including the first sample of each block, i.e. the
+     * index in {@link #mLongGaps} of the block's first escaped delta after that.
+     */
+    private final int[] mBlockEscapes;
+
+    /**
+     * The deltas that didn't fit, in order.
+     */
+    private final long[] mLongGaps;
+
+    /**
+     * Quantize a stroke.
+     * @param xs the X coordinates
+     * @param ys the Y coordinates
+     * @param times the sample times, in milliseconds, or null if they aren't known
+     * @param offset the index of the first sample in the arrays
+     * @param length the number of samples
+     */
+    public QuantizedStroke(float[] xs, float[] ys, long[] times, int offset, int length) {
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int i = offset; i < offset + length; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        float extent = Math.max(maxX - minX, maxY - minY);
+
+        mOriginX = length > 0 ? minX : 0;
+        mOriginY = length > 0 ? minY : 0;
+        mScale = extent > 0 ? extent / STEPS : 1;
+        mXs = new short[length];
+        mYs = new short[length];
+        for (int i = 0; i < length; i++) {
+            mXs[i] = quantize(xs[offset + i] - mOriginX);
+            mYs[i] = quantize(ys[offset + i] - mOriginY);
+        }
+
+        if (times == null) {
+            mDeltas = null;
+            mBlockTimes = null;
+            mBlockEscapes = null;
+            mLongGaps = null;
+            return;
+        }
+        int longGaps = 0;
+        for (int i = 1; i < length; i++) {
+            if (!fits(times[offset + i] - times[offset + i - 1])) {
+                longGaps++;
+            }
+        }
+        mDeltas = new short[length];
+        mBlockTimes = new long[(length + BLOCK_MASK) >> BLOCK_SHIFT];
+        mBlockEscapes = new int[mBlockTimes.length];
+        mLongGaps = new long[longGaps];
+        int escapes = 0;
+        for (int i = 0; i < length; i++) {
+            long time = times[offset + i];
+            if (i > 0) {
+                long delta = time - times[offset + i - 1];
+                if (fits(delta)) {
+                    mDeltas[i] = (short)delta;
+                } else {
+                    mDeltas[i] = (short)ESCAPE;
+                    mLongGaps[escapes++] = delta;
+                }
+            }
+            if ((i & BLOCK_MASK) == 0) {
+                mBlockTimes[i >> BLOCK_SHIFT] = time;
+                mBlockEscapes[i >> BLOCK_SHIFT] = escapes;
+            }
+        }
+    }
+
+    /**
+     * Quantize a stroke whose sample times aren't known.
+     * @param points the points
+     */
+    public QuantizedStroke(PointSequence points) {
+        this(xs(points), ys(points), null, 0, points.size());
+    }
+
+    /**
+     * Can a delta be stored in 16 bits?
+     * @param delta the time between two samples, in milliseconds
+     * @return true if it's non-negative and less than {@link #ESCAPE}
+     */
+    private static boolean fits(long delta) {
+        return delta >= 0 && delta < ESCAPE;
+    }
+
+    /**
+     * Convert a distance from the origin to a step count.
+     * @param distance the distance, in pixels
+     * @return the number of steps, as an unsigned short
+     */
+    private short quantize(float distance) {
+        int steps = Math.round(distance / mScale);
+        return (short)Math.min(STEPS, Math.max(0, steps));
+    }
+
+    @Override
+    public int size() {
+        return mXs.length;
+    }
+
+    @Override
+    public float getX(int index) {
+        return mOriginX + (mXs[index] & 0xFFFF) * mScale;
+    }
+
+    @Override
+    public float getY(int index) {
+        return mOriginY + (mYs[index] & 0xFFFF) * mScale;
+    }
+
+    /**
+     * Were the sample times given?
+     * @return true if {@link #getTime(int)} returns real times
+     */
+    public boolean hasTimes() {
+        return mDeltas != null;
+    }
+
+    /**
+     * Return the time of a sample.  This adds up the deltas since the start of the sample's
+     * block, at most {@link #BLOCK_SIZE} - 1 of them.
+     * @param index the index of the sample
+     * @return the time, in milliseconds, or 0 if the times aren't known
+     */
+    public long getTime(int index) {
+        if (index < 0 || index >= mXs.length) {
+            throw new IndexOutOfBoundsException("index " + index + " of " + mXs.length);
+        }
+        if (mDeltas == null) {
+            return 0;
+        }
+        int block = index >> BLOCK_SHIFT;
+        long time = mBlockTimes[block];
+        int escapes = mBlockEscapes[block];
+        for (int i = (block << BLOCK_SHIFT) + 1; i <= index; i++) {
+            int delta = mDeltas[i] & 0xFFFF;
+            time += delta == ESCAPE ? mLongGaps[escapes++] : delta;
+        }
+        return time;
+    }
+
+    /**
+     * Return the largest quantization error in a decoded coordinate, not counting float rounding.
+     * @return the error bound, in pixels
+     */
+    public float getMaxError() {
+        return mScale / 2;
+    }
+
+    /**
+     * Copy the X coordinates out of a sequence.
+     * @param points the points
+     * @return the X coordinates
+     */
+    private static float[] xs(PointSequence points) {
+        float[] xs = new float[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.getX(i);
+        }
+        return xs;
+    }
+
+    /**
+     * Copy the Y coordinates out of a sequence.
+     * @param points the points
+     * @return the Y coordinates
+     */
+    private static float[] ys(PointSequence points) {
+        float[] ys = new float[points.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = points.getY(i);
+        }
+        return ys;
+    }
+
+}
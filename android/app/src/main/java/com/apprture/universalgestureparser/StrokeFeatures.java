@@ -0,0 +1,270 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * Running totals of everything {@link com.apprture.universalgestureparser.GestureClassifier}
+ * needs to know about a stroke: its first and last points, bounding box, distance traveled,
+ * number of vectors, reversals of direction and the sum of its turning angles.
+ * <p>
+ * The totals are updated in constant time and space as each point arrives, so a stroke can be
+ * classified without keeping its points.  The arithmetic is the same, in the same order, as
+ * when the classifier reads a whole {@link com.apprture.universalgestureparser.PointSequence},
+ * so both give the same answer.
+ *
+ * @author Herb Jellinek
+ */
+public class StrokeFeatures {
+
+    private float mDownX;
+
+    private float mDownY;
+
+    private int mPointCount;
+
+    private float mFirstX;
+
+    private float mFirstY;
+
+    private float mLastX;
+
+    private float mLastY;
+
+    private float mMinX;
+
+    private float mMaxX;
+
+    private float mMinY;
+
+    private float mMaxY;
+
+    /**
+     * Sum of the absolute X distances between successive points, starting at the "down" point.
+     */
+    private float mDistanceTraveledX;
+
+    /**
+     * Sum of the absolute Y distances between successive points, starting at the "down" point.
+     */
+    private float mDistanceTraveledY;
+
+    /**
+     * The most recent vector.
+     */
+    private float mVectorX;
+
+    private float mVectorY;
+
+    private int mNumVectors;
+
+    private int mDotProductReverses;
+
+    private float mSumOfAngles;
+
+    private boolean mDotProductWasPositive;
+
+    /**
+     * Create an empty set of features.
+     */
+    public StrokeFeatures() {
+        reset(0, 0);
+    }
+
+    /**
+     * Forget the current stroke and start a new one.
+     * @param downX the X coordinate of the "down" event that starts the stroke
+     * @param downY the Y coordinate of the "down" event that starts the stroke
+     */
+    public void reset(float downX, float downY) {
+        mDownX = downX;
+        mDownY = downY;
+        mPointCount = 0;
+        mMinX = Float.MAX_VALUE;
+        mMaxX = Float.MIN_VALUE;
+        mMinY = Float.MAX_VALUE;
+        mMaxY = Float.MIN_VALUE;
+        mDistanceTraveledX = 0;
+        mDistanceTraveledY = 0;
+        mNumVectors = 0;
+        mDotProductReverses = 0;
+        mSumOfAngles = 0;
+        mDotProductWasPositive = false;
+    }
+
+    /**
+     * Add the next point of the stroke.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     */
+    public void addPoint(float x, float y) {
+        if (x < mMinX) {
+            mMinX = x;
+        }
+        if (x > mMaxX) {
+            mMaxX = x;
+        }
+        if (y < mMinY) {
+            mMinY = y;
+        }
+        if (y > mMaxY) {
+            mMaxY = y;
+        }
+
+        float previousX = mPointCount == 0 ? mDownX : mLastX;
+        float previousY = mPointCount == 0 ? mDownY : mLastY;
+        mDistanceTraveledX += Math.abs(x - previousX);
+        mDistanceTraveledY += Math.abs(y - previousY);
+
+        if (mPointCount == 0) {
+            mFirstX = x;
+            mFirstY = y;
+        } else {
+            float vectorX = x - mLastX;
+            float vectorY = y - mLastY;
+            if (mPointCount >= 2) {
+                addTurn(vectorX, vectorY);
+            }
+            mVectorX = vectorX;
+            mVectorY = vectorY;
+        }
+
+        mLastX = x;
+        mLastY = y;
+        mPointCount++;
+    }
+
+    /**
+     * Account for the turn from the most recent vector to a new one.
+     * @param vectorX the X component of the new vector
+     * @param vectorY the Y component of the new vector
+     */
+    private void addTurn(float vectorX, float vectorY) {
+        float dotProduct = SomeMath.dotProduct(mVectorX, mVectorY, vectorX, vectorY);
+        float crossProduct = SomeMath.crossProduct(mVectorX, mVectorY, vectorX, vectorY);
+        float angle =
+                SomeMath.angleBetween(dotProduct, crossProduct, mVectorX, mVectorY, vectorX, vectorY);
+
+        if (mNumVectors == 0) {
+            // the first turn sets the initial direction
+            mNumVectors = 2;
+            mSumOfAngles = angle;
+            mDotProductWasPositive = dotProduct > 0;
+            return;
+        }
+
+        mNumVectors++;
+        if (!Float.isNaN(angle)) {
+            mSumOfAngles += angle;
+        }
+
+        // if the sign of the dot product reverses a lot, it's a cross-out
+        if (dotProduct > 0) {
+            if (!mDotProductWasPositive) {
+                mDotProductReverses++;
+                mDotProductWasPositive = true;
+            }
+        } else if (dotProduct < 0) {
+            if (mDotProductWasPositive) {
+                mDotProductReverses++;
+                mDotProductWasPositive = false;
+            }
+        }
+    }
+
+    /**
+     * Return the number of points added since the last reset.
+     * @return the number of points
+     */
+    public int getPointCount() {
+        return mPointCount;
+    }
+
+    /**
+     * Return the X coordinate of the first point.
+     * @return the X coordinate
+     */
+    public float getFirstX() {
+        return mFirstX;
+    }
+
+    /**
+     * Return the Y coordinate of the first point.
+     * @return the Y coordinate
+     */
+    public float getFirstY() {
+        return mFirstY;
+    }
+
+    /**
+     * Return the X coordinate of the last point.
+     * @return the X coordinate
+     */
+    public float getLastX() {
+        return mLastX;
+    }
+
+    /**
+     * Return the Y coordinate of the last point.
+     * @return the Y coordinate
+     */
+    public float getLastY() {
+        return mLastY;
+    }
+
+    /**
+     * Return the bounding box of the points.
+     * @return a new {@link com.apprture.universalgestureparser.GestureBoundingBox}
+     */
+    public GestureBoundingBox getBoundingBox() {
+        return new GestureBoundingBox(mMinX, mMinY, mMaxX, mMaxY);
+    }
+
+    /**
+     * Return the velocity of movement averaged across the entire stroke, in points per
+     * millisecond.
+     * @param startTime the time at which the touch started
+     * @param upTime the time of the "up" event that ended the stroke
+     * @return the velocity in points per millisecond
+     */
+    public float getVelocity(long startTime, long upTime) {
+        float distance = (float)Math.sqrt((mDistanceTraveledX * mDistanceTraveledX) +
+                                          (mDistanceTraveledY * mDistanceTraveledY));
+        return distance / (upTime - startTime);
+    }
+
+    /**
+     * Return the number of vectors, or 0 if there are too few points to make a turn.
+     * @return the number of vectors
+     */
+    public int getNumVectors() {
+        return mNumVectors;
+    }
+
+    /**
+     * Return the number of times the sign of the dot product of successive vectors reversed.
+     * @return the number of reversals
+     */
+    public int getDotProductReverses() {
+        return mDotProductReverses;
+    }
+
+    /**
+     * Return the sum of the turning angles.
+     * @return the sum of the angles, in radians; positive is clockwise
+     */
+    public float getSumOfAngles() {
+        return mSumOfAngles;
+    }
+
+    /**
+     * Did the stroke turn clockwise, on balance?
+     * @return true if the sum of the angles is positive
+     */
+    public boolean isClockwise() {
+        return mSumOfAngles > 0;
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A locality-sensitive hash index of {@link com.apprture.universalgestureparser.StrokeSignature}s,
+ * for finding near-duplicate strokes and grouping a large collection into clusters of similar
+ * strokes without comparing every pair.
+ * <p>
+ * Each of several tables hashes a signature to the pattern of signs it gets against a few random
+ * hyperplanes.  Signatures at a small angle to each other usually get the same pattern in at
+ * least one table, and dissimilar ones rarely do, so only signatures that share a bucket are
+ * compared.  More bits per table make buckets more selective; more tables make it less likely
+ * that a true near-duplicate is missed.  Adding a stroke and looking one up cost time
+ * proportional to the number of tables plus the size of the buckets it lands in, so indexing
+ * and clustering a collection take roughly linear time.
+ * <p>
+ * Results are approximate: a near-duplicate is occasionally missed, but every result reported
+ * has been checked against the similarity threshold.  Not thread-safe.
+ *
+ * @author Herb Jellinek
+ */
+public class StrokeLshIndex {
+
+    private final int mTables;
+
+    private final int mBits;
+
+    /**
+     * mHyperplanes[table][bit] is the normal of one random hyperplane.
+     */
+    private final float[][][] mHyperplanes;
+
+    private final List<HashMap<Integer, ArrayList<Integer>>> mBuckets;
+
+    private final ArrayList<StrokeSignature> mSignatures = new ArrayList<StrokeSignature>();
+
+    /**
+     * The query that last saw each signature, so a signature found in several tables is only
+     * compared once.
+     */
+    private int[] mStamps = new int[16];
+
+    private int mStamp;
+
+    /**
+     * Create an empty index.
+     * @param tables the number of hash tables
+     * @param bitsPerTable the number of hyperplanes per table, at most 31
+     * @param seed the seed for choosing the hyperplanes, so indexes can be reproduced
+     */
+    public StrokeLshIndex(int tables, int bitsPerTable, long seed) {
+        if (tables <= 0 || bitsPerTable <= 0 || bitsPerTable > 31) {
+            throw new IllegalArgumentException("bad index shape " + tables + "x" + bitsPerTable);
+        }
+        mTables = tables;
+        mBits = bitsPerTable;
+        mHyperplanes = new float[tables][bitsPerTable][StrokeSignature.BINS];
+        mBuckets = new ArrayList<HashMap<Integer, ArrayList<Integer>>>(tables);
+        Random random = new Random(seed);
+        for (int t = 0; t < tables; t++) {
+            for (int b = 0; b < bitsPerTable; b++) {
+                for (int i = 0; i < StrokeSignature.BINS; i++) {
+                    mHyperplanes[t][b][i] = (float)random.nextGaussian();
+                }
+            }
+            mBuckets.add(new HashMap<Integer, ArrayList<Integer>>());
+        }
+    }
+
+    /**
+     * Add a signature.
+     * @param signature the signature
+     * @return its id, which is the number of signatures added before it
+     */
+    public int add(StrokeSignature signature) {
+        int id = mSignatures.size();
+        mSignatures.add(signature);
+        if (id == mStamps.length) {
+            int[] stamps = new int[id * 2];
+            System.arraycopy(mStamps, 0, stamps, 0, id);
+            mStamps = stamps;
+        }
+        for (int t = 0; t < mTables; t++) {
+            Integer key = hash(t, signature);
+            ArrayList<Integer> bucket = mBuckets.get(t).get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<Integer>(2);
+                mBuckets.get(t).put(key, bucket);
+            }
+            bucket.add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Return the number of signatures in the index.
+     * @return the number of signatures
+     */
+    public int size() {
+        return mSignatures.size();
+    }
+
+    /**
+     * Return a signature.
+     * @param id the signature's id
+     * @return the signature
+     */
+    public StrokeSignature get(int id) {
+        return mSignatures.get(id);
+    }
+
+    /**
+     * Find the indexed signatures that are at least as similar as the threshold to the given one.
+     * @param signature the signature to look for
+     * @param minSimilarity the smallest {@link StrokeSignature#similarity} to report
+     * @param out receives the ids of the matches, in no particular order
+     */
+    public void findNearDuplicates(StrokeSignature signature, float minSimilarity,
+                                   List<Integer> out) {
+        int stamp = ++mStamp;
+        for (int t = 0; t < mTables; t++) {
+            ArrayList<Integer> bucket = mBuckets.get(t).get(hash(t, signature));
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = 0; i < bucket.size(); i++) {
+                int id = bucket.get(i);
+                if (mStamps[id] != stamp) {
+                    mStamps[id] = stamp;
+                    if (mSignatures.get(id).similarity(signature) >= minSimilarity) {
+                        out.add(id);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Group the indexed signatures into clusters of near-duplicates.  Two signatures end up in
+     * the same cluster if they're linked by a chain of signatures, each at least as similar as
+     * the threshold to the next, that share buckets.  Within each bucket, every signature is
+     * compared only with the first, so the work is linear in the size of the index.
+     * @param minSimilarity the smallest {@link StrokeSignature#similarity} that links two
+     *                      signatures
+     * @return for each id, the id of its cluster's representative; a signature with no
+     * near-duplicates represents itself
+     */
+    public int[] cluster(float minSimilarity) {
+        int[] parents = new int[mSignatures.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        for (HashMap<Integer, ArrayList<Integer>> table : mBuckets) {
+            for (ArrayList<Integer> bucket : table.values()) {
+                int first = bucket.get(0);
+                StrokeSignature representative = mSignatures.get(first);
+                for (int i = 1; i < bucket.size(); i++) {
+                    int id = bucket.get(i);
+                    if (mSignatures.get(id).similarity(representative) >= minSimilarity) {
+                        union(parents, first, id);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = find(parents, i);
+        }
+        return parents;
+    }
+
+    /**
+     * Compute the key of a signature in one table.
+     * @param table the table
+     * @param signature the signature
+     * @return a bit for each of the table's hyperplanes, set if the signature is on its
+     * positive side
+     */
+    private Integer hash(int table, StrokeSignature signature) {
+        int key = 0;
+        for (int b = 0; b < mBits; b++) {
+            float[] normal = mHyperplanes[table][b];
+            float dot = 0;
+            for (int i = 0; i < StrokeSignature.BINS; i++) {
+                dot += normal[i] * signature.get(i);
+            }
+            if (dot >= 0) {
+                key |= 1 << b;
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Return the root of an element's set, compressing the path to it.
+     * @param parents the union-find forest
+     * @param i the element
+     * @return the root
+     */
+    private static int find(int[] parents, int i) {
+        int root = i;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[i] != root) {
+            int next = parents[i];
+            parents[i] = root;
+            i = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merge the sets of two elements.  The smaller root becomes the root of the merged set.
+     * @param parents the union-find forest
+     * @param a one element
+     * @param b the other element
+     */
+    private static void union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA < rootB) {
+            parents[rootB] = rootA;
+        } else if (rootB < rootA) {
+            parents[rootA] = rootB;
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * Guesses where a stroke is going next, so the ink can be drawn ahead of the samples that
+ * have actually arrived and appear to keep up with the finger.
+ * <p>
+ * The prediction extrapolates from the velocity and acceleration implied by the last three
+ * samples, so each sample and each prediction takes constant time.  The predictor also keeps
+ * score: whenever a real sample arrives within the span of the last prediction, the distance
+ * between the two is recorded, and {@link #getMeanError()} and {@link #getMaxError()} report
+ * how well it's doing.
+ * <p>
+ * Has no Android dependencies, so it can be run headlessly over recorded strokes.
+ *
+ * @author Herb Jellinek
+ */
+public class StrokePredictor {
+
+    /**
+     * The last three samples; index 2 is the newest.
+     */
+    private final float[] mXs = new float[3];
+
+    private final float[] mYs = new float[3];
+
+    private final long[] mTimes = new long[3];
+
+    private int mSampleCount;
+
+    /*
+     * The motion assumed by the last prediction: position, velocity and acceleration at
+     * mModelTime, and the time up to which it predicted.
+     */
+
+    private boolean mHaveModel;
+
+    private long mModelTime;
+
+    private long mModelEndTime;
+
+    private float mModelX;
+
+    private float mModelY;
+
+    private float mVelocityX;
+
+    private float mVelocityY;
+
+    private float mAccelerationX;
+
+    private float mAccelerationY;
+
+    private int mErrorCount;
+
+    private double mErrorSum;
+
+    private float mMaxError;
+
+    /**
+     * Forget the current stroke.  The error statistics are kept.
+     */
+    public void reset() {
+        mSampleCount = 0;
+        mHaveModel = false;
+    }
+
+    /**
+     * Forget the error statistics.
+     */
+    public void resetErrors() {
+        mErrorCount = 0;
+        mErrorSum = 0;
+        mMaxError = 0;
+    }
+
+    /**
+     * Add a real sample of the stroke.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param time the time of the sample, in milliseconds
+     */
+    public void addSample(float x, float y, long time) {
+        if (mHaveModel && time > mModelTime && time <= mModelEndTime) {
+            float dt = time - mModelTime;
+            float error = SomeMath.length(x - extrapolate(mModelX, mVelocityX, mAccelerationX, dt),
+                                          y - extrapolate(mModelY, mVelocityY, mAccelerationY, dt));
+            mErrorCount++;
+            mErrorSum += error;
+            mMaxError = Math.max(mMaxError, error);
+        }
+
+        if (mSampleCount > 0 && time <= mTimes[2]) {
+            // replace a sample with the same (or an earlier) time rather than divide by zero
+            mXs[2] = x;
+            mYs[2] = y;
+            return;
+        }
+        mXs[0] = mXs[1];
+        mYs[0] = mYs[1];
+        mTimes[0] = mTimes[1];
+        mXs[1] = mXs[2];
+        mYs[1] = mYs[2];
+        mTimes[1] = mTimes[2];
+        mXs[2] = x;
+        mYs[2] = y;
+        mTimes[2] = time;
+        if (mSampleCount < 3) {
+            mSampleCount++;
+        }
+    }
+
+    /**
+     * Predict the next few points of the stroke, at regular intervals after the newest sample.
+     * @param count the number of points to predict
+     * @param intervalMillis the time between predicted points, e.g. one display frame
+     * @param outXs receives the X coordinates
+     * @param outYs receives the Y coordinates
+     * @return the number of points predicted: <tt>count</tt>, or 0 if there are fewer than two
+     * samples to go on
+     */
+    public int predict(int count, long intervalMillis, float[] outXs, float[] outYs) {
+        if (mSampleCount < 2) {
+            return 0;
+        }
+        float dt1 = mTimes[2] - mTimes[1];
+        mVelocityX = (mXs[2] - mXs[1]) / dt1;
+        mVelocityY = (mYs[2] - mYs[1]) / dt1;
+        if (mSampleCount == 3) {
+            float dt0 = mTimes[1] - mTimes[0];
+            float previousVelocityX = (mXs[1] - mXs[0]) / dt0;
+            float previousVelocityY = (mYs[1] - mYs[0]) / dt0;
+            float span = (dt0 + dt1) / 2;
+            mAccelerationX = (mVelocityX - previousVelocityX) / span;
+            mAccelerationY = (mVelocityY - previousVelocityY) / span;
+        } else {
+            mAccelerationX = 0;
+            mAccelerationY = 0;
+        }
+        mModelX = mXs[2];
+        mModelY = mYs[2];
+        mModelTime = mTimes[2];
+        mModelEndTime = mModelTime + count * intervalMillis;
+        mHaveModel = true;
+
+        for (int i = 0; i < count; i++) {
+            float dt = (i + 1) * intervalMillis;
+            outXs[i] = extrapolate(mModelX, mVelocityX, mAccelerationX, dt);
+            outYs[i] = extrapolate(mModelY, mVelocityY, mAccelerationY, dt);
+        }
+        return count;
+    }
+
+    /**
+     * Return the mean distance between predicted and actual points.
+     * @return the mean error, in pixels, or 0 if nothing has been measured
+     */
+    public float getMeanError() {
+        return mErrorCount == 0 ? 0 : (float)(mErrorSum / mErrorCount);
+    }
+
+    /**
+     * Return the largest distance between a predicted and an actual point.
+     * @return the largest error, in pixels
+     */
+    public float getMaxError() {
+        return mMaxError;
+    }
+
+    /**
+     * Return the number of real samples that were compared against a prediction.
+     * @return the number of errors measured
+     */
+    public int getErrorCount() {
+        return mErrorCount;
+    }
+
+    /**
+     * Return the position after a time, given a starting position, velocity and acceleration.
+     * @param position the starting position
+     * @param velocity the velocity, per millisecond
+     * @param acceleration the acceleration, per millisecond squared
+     * @param dt the elapsed time, in milliseconds
+     * @return the position
+     */
+    private static float extrapolate(float position, float velocity, float acceleration,
+                                     float dt) {
+        return position + velocity * dt + acceleration * dt * dt / 2;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * A cheap, fixed-size summary of a stroke's shape, for finding near-identical strokes in large
+ * collections.
+ * <p>
+ * The signature is a histogram of the directions of the vectors between successive points
+ * (the same vectors {@link com.apprture.universalgestureparser.GestureClassifier} analyzes),
+ * each weighted by its length and scaled so the histogram has unit length.  Bins are centered on
+ * multiples of 360/{@link #BINS} degrees, including the four cardinal directions, and each
+ * vector's weight is split between the two bins whose centers it lies between, in proportion to
+ * how close it is to each.  So a slight change of direction makes a slight change to the
+ * signature, even for a swipe that runs almost exactly along an axis.  It ignores where
+ * the stroke is and how big it is, and the cosine of the angle between two signatures,
+ * {@link #similarity}, is 1 for strokes that head the same ways in the same proportions.
+ *
+ * @author Herb Jellinek
+ */
+public class StrokeSignature {
+
+    /**
+     * The number of direction bins.
+     */
+    public static final int BINS = 16;
+
+    private static final double BIN_RADIANS = 2 * Math.PI / BINS;
+
+    private final float[] mHistogram = new float[BINS];
+
+    /**
+     * Compute the signature of a stroke held in arrays.
+     * @param xs the X coordinates
+     * @param ys the Y coordinates
+     * @param offset the index of the first point
+     * @param count the number of points
+     */
+    public StrokeSignature(float[] xs, float[] ys, int offset, int count) {
+        int n = Math.max(0, count - 1);
+        float[] Δxs = new float[n];
+        float[] Δys = new float[n];
+        float[] lengths = new float[n];
+        BatchMath.differences(xs, ys, offset, count, Δxs, Δys);
+        BatchMath.lengths(Δxs, Δys, n, lengths);
+
+        for (int i = 0; i < n; i++) {
+            if (lengths[i] == 0) {
+                continue;
+            }
+            double angle = Math.atan2(Δys[i], Δxs[i]);
+            if (angle < 0) {
+                angle += 2 * Math.PI;
+            }
+            double position = angle / BIN_RADIANS;
+            int bin = (int)position;
+            float upper = (float)(position - bin);
+            mHistogram[bin % BINS] += lengths[i] * (1 - upper);
+            mHistogram[(bin + 1) % BINS] += lengths[i] * upper;
+        }
+
+        float norm = 0;
+        for (float h : mHistogram) {
+            norm += h * h;
+        }
+        norm = (float)Math.sqrt(norm);
+        if (norm > 0) {
+            for (int i = 0; i < BINS; i++) {
+                mHistogram[i] /= norm;
+            }
+        }
+    }
+
+    /**
+     * Compute the signature of a stroke.
+     * @param points the points of the stroke
+     */
+    public StrokeSignature(PointSequence points) {
+        this(xs(points), ys(points), 0, points.size());
+    }
+
+    /**
+     * Return one bin of the histogram.
+     * @param bin the bin, from 0 to {@link #BINS} - 1
+     * @return the weight of the bin
+     */
+    public float get(int bin) {
+        return mHistogram[bin];
+    }
+
+    /**
+     * Return the cosine similarity of two signatures.
+     * @param other the other signature
+     * @return 1 for identical shapes, down to 0 for strokes that share no directions
+     */
+    public float similarity(StrokeSignature other) {
+        float dot = 0;
+        for (int i = 0; i < BINS; i++) {
+            dot += mHistogram[i] * other.mHistogram[i];
+        }
+        return dot;
+    }
+
+    /**
+     * Copy the X coordinates out of a sequence.
+     * @param points the points
+     * @return the X coordinates
+     */
+    private static float[] xs(PointSequence points) {
+        float[] xs = new float[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.getX(i);
+        }
+        return xs;
+    }
+
+    /**
+     * Copy the Y coordinates out of a sequence.
+     * @param points the points
+     * @return the Y coordinates
+     */
+    private static float[] ys(PointSequence points) {
+        float[] ys = new float[points.size()];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = points.getY(i);
+        }
+        return ys;
+    }
+
+}
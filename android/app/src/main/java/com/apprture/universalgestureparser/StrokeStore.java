@@ -0,0 +1,262 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+
+/**
+ * A columnar, off-heap store for large numbers of strokes.
+ * <p>
+ * The X, Y and timestamp values of every point are kept in three columns of direct
+ * {@link java.nio.ByteBuffer}s, so a point costs 16 bytes outside the Java heap instead of an
+ * {@link com.apprture.universalgestureparser.FPoint}, its header and a list reference on the
+ * heap.  Each column is split into chunks of {@link #CHUNK_POINTS} points, which lets the store
+ * grow past the 2 GB limit of a single buffer; strokes may cross chunk boundaries.  A table of
+ * offsets records where each stroke begins.
+ * <p>
+ * Chunks are allocated whole, so the first point added, and every {@link #CHUNK_POINTS}th
+ * after it, allocates 16 MB of direct memory (4 MB each for X and Y, 8 MB for times).  Use a
+ * store for corpora of many strokes, not for a handful.
+ * <p>
+ * Read strokes through a {@link com.apprture.universalgestureparser.StrokeStore.StrokeView},
+ * a flyweight that can be rebound to any stroke without allocating and that can be handed
+ * straight to {@link com.apprture.universalgestureparser.GestureClassifier}.
+ * <p>
+ * Points are appended with {@link #addPoint(float, float, long)} and the stroke closed with
+ * {@link #endStroke()}; strokes can't be changed once they're closed.  Not thread-safe.
+ *
+ * @author Herb Jellinek
+ */
+public class StrokeStore {
+
+    /**
+     * log2 of the number of points in a chunk.
+     */
+    private static final int CHUNK_SHIFT = 20;
+
+    /**
+     * The number of points in a chunk.
+     */
+    public static final int CHUNK_POINTS = 1 << CHUNK_SHIFT;
+
+    private static final int CHUNK_MASK = CHUNK_POINTS - 1;
+
+    private static final int INITIAL_STROKE_CAPACITY = 64;
+
+    private ArrayList<FloatBuffer> mXChunks = new ArrayList<FloatBuffer>();
+
+    private ArrayList<FloatBuffer> mYChunks = new ArrayList<FloatBuffer>();
+
+    private ArrayList<LongBuffer> mTimeChunks = new ArrayList<LongBuffer>();
+
+    /**
+     * The total number of points stored, including those of the stroke in progress.
+     */
+    private long mPointCount;
+
+    /**
+     * mStrokeOffsets[i] is the index of the first point of stroke i.  The entry after the
+     * last closed stroke is the start of the stroke in progress.
+     */
+    private long[] mStrokeOffsets = new long[INITIAL_STROKE_CAPACITY + 1];
+
+    private int mStrokeCount;
+
+    /**
+     * Append a point to the stroke in progress.
+     * @param x the X coordinate
+     * @param y the Y coordinate
+     * @param time the time of the sample, in milliseconds
+     */
+    public void addPoint(float x, float y, long time) {
+        int chunk = (int)(mPointCount >>> CHUNK_SHIFT);
+        if (chunk == mXChunks.size()) {
+            mXChunks.add(allocate(4).asFloatBuffer());
+            mYChunks.add(allocate(4).asFloatBuffer());
+            mTimeChunks.add(allocate(8).asLongBuffer());
+        }
+        int index = (int)(mPointCount & CHUNK_MASK);
+        mXChunks.get(chunk).put(index, x);
+        mYChunks.get(chunk).put(index, y);
+        mTimeChunks.get(chunk).put(index, time);
+        mPointCount++;
+    }
+
+    /**
+     * Append a whole stroke and close it.
+     * @param xs the X coordinates
+     * @param ys the Y coordinates
+     * @param times the sample times, in milliseconds
+     * @param offset the index of the first sample in the arrays
+     * @param length the number of samples
+     * @return the index of the new stroke
+     */
+    public int addStroke(float[] xs, float[] ys, long[] times, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            addPoint(xs[i], ys[i], times[i]);
+        }
+        return endStroke();
+    }
+
+    /**
+     * Close the stroke in progress.  The points added since the last call become a stroke.
+     * @return the index of the stroke just closed
+     */
+    public int endStroke() {
+        if (mStrokeCount + 2 > mStrokeOffsets.length) {
+            long[] offsets = new long[mStrokeOffsets.length * 2];
+            System.arraycopy(mStrokeOffsets, 0, offsets, 0, mStrokeCount + 1);
+            mStrokeOffsets = offsets;
+        }
+        mStrokeCount++;
+        mStrokeOffsets[mStrokeCount] = mPointCount;
+        return mStrokeCount - 1;
+    }
+
+    /**
+     * Return the number of closed strokes.
+     * @return the number of strokes
+     */
+    public int getStrokeCount() {
+        return mStrokeCount;
+    }
+
+    /**
+     * Return the total number of points stored.
+     * @return the number of points
+     */
+    public long getPointCount() {
+        return mPointCount;
+    }
+
+    /**
+     * Return the number of bytes of off-heap memory the point columns occupy.
+     * @return the number of bytes allocated
+     */
+    public long getAllocatedBytes() {
+        return (long)mXChunks.size() * CHUNK_POINTS * 16;
+    }
+
+    /**
+     * Return a view of a stroke.
+     * @param stroke the index of the stroke
+     * @param reuse a view to rebind, or null to create a new one
+     * @return the view, bound to the stroke
+     */
+    public StrokeView view(int stroke, StrokeView reuse) {
+        if (stroke < 0 || stroke >= mStrokeCount) {
+            throw new IndexOutOfBoundsException("stroke " + stroke + " of " + mStrokeCount);
+        }
+        StrokeView view = reuse != null ? reuse : new StrokeView();
+        view.bind(this, mStrokeOffsets[stroke], (int)(mStrokeOffsets[stroke + 1] - mStrokeOffsets[stroke]));
+        return view;
+    }
+
+    /**
+     * Return the X coordinate of a point.
+     * @param point the index of the point in the whole store
+     * @return the X coordinate
+     */
+    public float getX(long point) {
+        return mXChunks.get((int)(point >>> CHUNK_SHIFT)).get((int)(point & CHUNK_MASK));
+    }
+
+    /**
+     * Return the Y coordinate of a point.
+     * @param point the index of the point in the whole store
+     * @return the Y coordinate
+     */
+    public float getY(long point) {
+        return mYChunks.get((int)(point >>> CHUNK_SHIFT)).get((int)(point & CHUNK_MASK));
+    }
+
+    /**
+     * Return the time of a point.
+     * @param point the index of the point in the whole store
+     * @return the time, in milliseconds
+     */
+    public long getTime(long point) {
+        return mTimeChunks.get((int)(point >>> CHUNK_SHIFT)).get((int)(point & CHUNK_MASK));
+    }
+
+    /**
+     * Allocate one chunk of a column.
+     * @param bytesPerPoint the size of a single value
+     * @return the new buffer, in native byte order
+     */
+    private static ByteBuffer allocate(int bytesPerPoint) {
+        return ByteBuffer.allocateDirect(CHUNK_POINTS * bytesPerPoint).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * A lightweight, reusable window onto one stroke in a
+     * {@link com.apprture.universalgestureparser.StrokeStore}.
+     */
+    public static class StrokeView implements PointSequence {
+
+        private StrokeStore mStore;
+
+        private long mStart;
+
+        private int mSize;
+
+        /**
+         * Point this view at a stroke.
+         * @param store the store holding the stroke
+         * @param start the index of the stroke's first point in the store
+         * @param size the number of points in the stroke
+         */
+        private void bind(StrokeStore store, long start, int size) {
+            mStore = store;
+            mStart = start;
+            mSize = size;
+        }
+
+        @Override
+        public int size() {
+            return mSize;
+        }
+
+        @Override
+        public float getX(int index) {
+            checkIndex(index);
+            return mStore.getX(mStart + index);
+        }
+
+        @Override
+        public float getY(int index) {
+            checkIndex(index);
+            return mStore.getY(mStart + index);
+        }
+
+        /**
+         * Return the time of a point.
+         * @param index the index of the point in the stroke
+         * @return the time, in milliseconds
+         */
+        public long getTime(int index) {
+            checkIndex(index);
+            return mStore.getTime(mStart + index);
+        }
+
+        /**
+         * Make sure an index is within the stroke, so it can't read a neighbor's points.
+         * @param index the index of the point in the stroke
+         * @throws IndexOutOfBoundsException if it isn't
+         */
+        private void checkIndex(int index) {
+            if (index < 0 || index >= mSize) {
+                throw new IndexOutOfBoundsException("index " + index + " of " + mSize);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+/**
+ * A hashed timing wheel: a circular array of slots, each holding a doubly-linked list of the
+ * timeouts that fall due on ticks hashing to that slot.  Scheduling and cancelling a timeout
+ * take constant time, and each tick looks only at the timeouts in one slot, which is constant
+ * time on average as long as there are enough slots for the timeouts in use.
+ * <p>
+ * The wheel has no thread of its own; call {@link #advance(long)} with the current time, e.g.
+ * whenever input arrives and from a periodic callback.  Not thread-safe.
+ *
+ * @author Herb Jellinek
+ */
+public class TimingWheel {
+
+    /**
+     * Something that should happen at a certain time.  A timeout can be in at most one wheel at
+     * a time, and can be scheduled again after it expires or is cancelled.
+     */
+    public abstract static class Timeout {
+
+        private Timeout mNext;
+
+        private Timeout mPrevious;
+
+        private int mSlot = -1;
+
+        private long mDeadlineTick;
+
+        /**
+         * Called by {@link TimingWheel#advance(long)} when the timeout falls due.
+         * @param now the time passed to {@link TimingWheel#advance(long)}
+         */
+        protected abstract void expire(long now);
+
+        /**
+         * Is the timeout waiting in a wheel?
+         * @return true if it has been scheduled and has neither expired nor been cancelled
+         */
+        public boolean isScheduled() {
+            return mSlot >= 0;
+        }
+
+    }
+
+    private final Timeout[] mSlots;
+
+    private final int mMask;
+
+    private final long mTickMillis;
+
+    /**
+     * The last tick that has been processed.
+     */
+    private long mTick;
+
+    /**
+     * Create a wheel.
+     * @param slots the number of slots, rounded up to a power of two
+     * @param tickMillis the length of a tick, in milliseconds; timeouts expire to within a tick
+     * @param now the current time, in milliseconds
+     */
+    public TimingWheel(int slots, long tickMillis, long now) {
+        if (slots <= 0 || tickMillis <= 0) {
+            throw new IllegalArgumentException("slots and tick length must be positive");
+        }
+        int size = Integer.highestOneBit(slots);
+        if (size < slots) {
+            size <<= 1;
+        }
+        mSlots = new Timeout[size];
+        mMask = size - 1;
+        mTickMillis = tickMillis;
+        mTick = now / tickMillis;
+    }
+
+    /**
+     * Schedule a timeout, cancelling it first if it's already scheduled.
+     * @param timeout the timeout
+     * @param deadline when it should expire, in milliseconds; a time in the past expires on the
+     *                 next call to {@link #advance(long)}
+     */
+    public void schedule(Timeout timeout, long deadline) {
+        cancel(timeout);
+        // round up, so a timeout never expires early
+        long tick = Math.max(mTick + 1, (deadline + mTickMillis - 1) / mTickMillis);
+        int slot = (int)(tick & mMask);
+        timeout.mDeadlineTick = tick;
+        timeout.mSlot = slot;
+        timeout.mPrevious = null;
+        timeout.mNext = mSlots[slot];
+        if (mSlots[slot] != null) {
+            mSlots[slot].mPrevious = timeout;
+        }
+        mSlots[slot] = timeout;
+    }
+
+    /**
+     * Cancel a timeout.  Does nothing if it isn't scheduled.
+     * @param timeout the timeout
+     */
+    public void cancel(Timeout timeout) {
+        if (timeout.mSlot < 0) {
+            return;
+        }
+        if (timeout.mPrevious != null) {
+            timeout.mPrevious.mNext = timeout.mNext;
+        } else {
+            mSlots[timeout.mSlot] = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout.mPrevious;
+        }
+        timeout.mNext = null;
+        timeout.mPrevious = null;
+        timeout.mSlot = -1;
+    }
+
+    /**
+     * Bring the wheel up to the given time, expiring every timeout that has fallen due.
+     * @param now the current time, in milliseconds
+     */
+    public void advance(long now) {
+        long target = now / mTickMillis;
+        // after a full turn every slot has been visited, so skip idle turns
+        if (target - mTick > mSlots.length) {
+            mTick = target - mSlots.length;
+        }
+        while (mTick < target) {
+            mTick++;
+            int slot = (int)(mTick & mMask);
+            Timeout timeout = mSlots[slot];
+            while (timeout != null) {
+                if (timeout.mDeadlineTick <= mTick) {
+                    cancel(timeout);
+                    timeout.expire(now);
+                    // expire() may have changed the list, so start the slot over
+                    timeout = mSlots[slot];
+                } else {
+                    timeout = timeout.mNext;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static com.apprture.universalgestureparser.GestureType.CLICK;
+import static com.apprture.universalgestureparser.GestureType.SWIPE_DOWN;
+import static com.apprture.universalgestureparser.GestureType.SWIPE_UP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link com.apprture.universalgestureparser.GestureAutomaton#match}.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureAutomatonTest {
+
+    private final GestureAutomaton<String> mAutomaton = new GestureGrammar<String>()
+            .addRule("up-down", SWIPE_UP, SWIPE_DOWN)
+            .addRule("click", CLICK)
+            .compile(0);
+
+    @Test
+    public void matchesWholeSequence() {
+        assertEquals("up-down", mAutomaton.match(Arrays.asList(SWIPE_UP, SWIPE_DOWN)));
+        assertEquals("click", mAutomaton.match(Arrays.asList(CLICK)));
+    }
+
+    @Test
+    public void doesNotMatchRuleAtEndOnly() {
+        assertNull(mAutomaton.match(Arrays.asList(SWIPE_UP, SWIPE_UP, SWIPE_DOWN)));
+        assertNull(mAutomaton.match(Arrays.asList(SWIPE_UP, CLICK)));
+    }
+
+    @Test
+    public void doesNotMatchPartOfRule() {
+        assertNull(mAutomaton.match(Arrays.asList(SWIPE_UP)));
+        assertNull(mAutomaton.match(Arrays.asList(SWIPE_UP, SWIPE_DOWN, CLICK)));
+        assertNull(mAutomaton.match(Arrays.<GestureType>asList()));
+    }
+
+    @Test
+    public void leavesStreamingStateAlone() {
+        assertNull(mAutomaton.advance(SWIPE_UP, 0));
+        mAutomaton.match(Arrays.asList(CLICK));
+        assertTrue(mAutomaton.isPending());
+        assertEquals("up-down", mAutomaton.advance(SWIPE_DOWN, 1));
+    }
+
+}
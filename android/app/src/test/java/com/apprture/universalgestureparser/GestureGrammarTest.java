@@ -0,0 +1,114 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import org.junit.Test;
+
+import static com.apprture.universalgestureparser.GestureType.CLICK;
+import static com.apprture.universalgestureparser.GestureType.SWIPE_DOWN;
+import static com.apprture.universalgestureparser.GestureType.SWIPE_LEFT;
+import static com.apprture.universalgestureparser.GestureType.SWIPE_UP;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link com.apprture.universalgestureparser.GestureGrammar} and the
+ * {@link com.apprture.universalgestureparser.GestureAutomaton} it compiles.
+ *
+ * @author Herb Jellinek
+ */
+public class GestureGrammarTest {
+
+    @Test
+    public void acceptsRuleThatIsSuffixOfAnother() {
+        GestureAutomaton<String> automaton = new GestureGrammar<String>()
+                .addRule("long", SWIPE_UP, SWIPE_DOWN, CLICK)
+                .addRule("short", SWIPE_DOWN, CLICK)
+                .compile(0);
+
+        assertNull(automaton.advance(SWIPE_UP, 0));
+        assertNull(automaton.advance(SWIPE_DOWN, 1));
+        assertEquals("long", automaton.advance(CLICK, 2));
+
+        assertNull(automaton.advance(SWIPE_DOWN, 3));
+        assertEquals("short", automaton.advance(CLICK, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRuleInsideAnother() {
+        new GestureGrammar<String>()
+                .addRule("outer", SWIPE_UP, SWIPE_DOWN, CLICK, SWIPE_LEFT)
+                .addRule("inner", SWIPE_DOWN, CLICK)
+                .compile(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrefixAddedFirst() {
+        new GestureGrammar<String>()
+                .addRule("prefix", SWIPE_UP)
+                .addRule("longer", SWIPE_UP, SWIPE_DOWN)
+                .compile(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrefixAddedLast() {
+        new GestureGrammar<String>()
+                .addRule("longer", SWIPE_UP, SWIPE_DOWN)
+                .addRule("prefix", SWIPE_UP)
+                .compile(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicate() {
+        new GestureGrammar<String>()
+                .addRule("one", SWIPE_UP, CLICK)
+                .addRule("two", SWIPE_UP, CLICK)
+                .compile(0);
+    }
+
+    @Test
+    public void followsFailureLinks() {
+        GestureAutomaton<String> automaton = new GestureGrammar<String>()
+                .addRule("up-down", SWIPE_UP, SWIPE_DOWN)
+                .compile(0);
+
+        assertNull(automaton.advance(SWIPE_UP, 0));
+        assertNull(automaton.advance(SWIPE_UP, 1));
+        assertEquals("up-down", automaton.advance(SWIPE_DOWN, 2));
+    }
+
+    @Test
+    public void resetsAfterTimeout() {
+        GestureAutomaton<String> automaton = new GestureGrammar<String>()
+                .addRule("up-down", SWIPE_UP, SWIPE_DOWN)
+                .compile(500);
+
+        assertNull(automaton.advance(SWIPE_UP, 0));
+        assertTrue(automaton.isPending());
+        assertNull(automaton.advance(SWIPE_DOWN, 501));
+        assertFalse(automaton.isPending());
+
+        assertNull(automaton.advance(SWIPE_UP, 1000));
+        assertEquals("up-down", automaton.advance(SWIPE_DOWN, 1500));
+    }
+
+    @Test
+    public void consumesMatchedGestures() {
+        GestureAutomaton<String> automaton = new GestureGrammar<String>()
+                .addRule("double", CLICK, CLICK)
+                .compile(0);
+
+        assertNull(automaton.advance(CLICK, 0));
+        assertEquals("double", automaton.advance(CLICK, 1));
+        assertFalse(automaton.isPending());
+        // the second click was used up, so the third starts a new sequence
+        assertNull(automaton.advance(CLICK, 2));
+        assertEquals("double", automaton.advance(CLICK, 3));
+    }
+
+}
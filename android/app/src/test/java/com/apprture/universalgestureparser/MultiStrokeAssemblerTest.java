@@ -0,0 +1,164 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.apprture.universalgestureparser.GestureType.CLICK;
+import static com.apprture.universalgestureparser.GestureType.FLICK_LEFT;
+import static com.apprture.universalgestureparser.GestureType.FLICK_RIGHT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests of {@link com.apprture.universalgestureparser.MultiStrokeAssembler}.
+ *
+ * @author Herb Jellinek
+ */
+public class MultiStrokeAssemblerTest {
+
+    private static final long MAX_GAP_MILLIS = 300;
+
+    private static final float MAX_GAP_DISTANCE = 50;
+
+    private static final List<FPoint> NO_POINTS = Collections.emptyList();
+
+    private final List<Object> mSessions = new ArrayList<Object>();
+
+    private final List<MultiStrokeAssembler.StrokeGroup> mGroups =
+            new ArrayList<MultiStrokeAssembler.StrokeGroup>();
+
+    private final List<String> mSymbols = new ArrayList<String>();
+
+    private MultiStrokeAssembler<String> mAssembler;
+
+    @Before
+    public void setUp() {
+        GestureAutomaton<String> symbols = new GestureGrammar<String>()
+                .addRule("X", FLICK_RIGHT, FLICK_LEFT)
+                .compile(0);
+        MultiStrokeAssembler.Listener<String> listener = new MultiStrokeAssembler.Listener<String>() {
+            @Override
+            public void strokeGroup(Object session, MultiStrokeAssembler.StrokeGroup group,
+                                    String symbol) {
+                mSessions.add(session);
+                mGroups.add(group);
+                mSymbols.add(symbol);
+            }
+        };
+        mAssembler = new MultiStrokeAssembler<String>(MAX_GAP_MILLIS, MAX_GAP_DISTANCE, symbols,
+                                                      listener, 0);
+    }
+
+    /**
+     * Add a stroke that starts at (10, 10).
+     */
+    private void addStroke(Object session, GestureType type, long startTime, long endTime) {
+        mAssembler.addStroke(session, type, NO_POINTS, 10, 10, startTime, endTime);
+    }
+
+    @Test
+    public void joinsStrokeLongerThanThePauseBeforeIt() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        addStroke("s", FLICK_LEFT, 1300, 1550);
+        mAssembler.advance(5000);
+
+        assertEquals(1, mGroups.size());
+        assertEquals(2, mGroups.get(0).getStrokes().size());
+        assertEquals("X", mSymbols.get(0));
+    }
+
+    @Test
+    public void joinsStrokeStartingExactlyAtDeadline() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        addStroke("s", FLICK_LEFT, 1100 + MAX_GAP_MILLIS, 1500);
+        mAssembler.advance(5000);
+
+        assertEquals(1, mGroups.size());
+        assertEquals(2, mGroups.get(0).getStrokes().size());
+    }
+
+    @Test
+    public void startsNewGroupAfterGap() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        addStroke("s", FLICK_LEFT, 1101 + MAX_GAP_MILLIS, 1500);
+        mAssembler.advance(5000);
+
+        assertEquals(2, mGroups.size());
+        assertNull(mSymbols.get(0));
+        assertNull(mSymbols.get(1));
+    }
+
+    @Test
+    public void startsNewGroupFarAway() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        mAssembler.addStroke("s", FLICK_LEFT, NO_POINTS, 500, 500, 1200, 1300);
+        mAssembler.advance(5000);
+
+        assertEquals(2, mGroups.size());
+    }
+
+    @Test
+    public void beginStrokeHoldsGroupOpen() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        mAssembler.beginStroke("s", 10, 10, 1300);
+        // the next stroke is still being drawn long after the gap has passed
+        mAssembler.advance(5000);
+        assertEquals(0, mGroups.size());
+        assertEquals(1, mAssembler.getPendingCount());
+
+        addStroke("s", FLICK_LEFT, 1300, 5100);
+        mAssembler.advance(5100 + MAX_GAP_MILLIS);
+        assertEquals(1, mGroups.size());
+        assertEquals("X", mSymbols.get(0));
+    }
+
+    @Test
+    public void beginStrokeFarAwayFinishesGroup() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        mAssembler.beginStroke("s", 500, 500, 1200);
+
+        assertEquals(1, mGroups.size());
+        assertEquals(0, mAssembler.getPendingCount());
+    }
+
+    @Test
+    public void recognizesSymbolsOfInterleavedSessions() {
+        Object a = "a";
+        Object b = "b";
+        addStroke(a, FLICK_RIGHT, 1000, 1100);
+        addStroke(b, CLICK, 1050, 1150);
+        addStroke(a, FLICK_LEFT, 1200, 1300);
+        addStroke(b, FLICK_LEFT, 1250, 1350);
+        mAssembler.advance(5000);
+
+        assertEquals(2, mGroups.size());
+        int ofA = mSessions.indexOf(a);
+        int ofB = mSessions.indexOf(b);
+        assertEquals("X", mSymbols.get(ofA));
+        assertEquals(2, mGroups.get(ofA).getStrokes().size());
+        // CLICK, FLICK_LEFT ends like X, but only a whole group makes a symbol
+        assertNull(mSymbols.get(ofB));
+        assertEquals(2, mGroups.get(ofB).getStrokes().size());
+    }
+
+    @Test
+    public void flushFinishesGroupAtOnce() {
+        addStroke("s", FLICK_RIGHT, 1000, 1100);
+        mAssembler.flush("s");
+
+        assertEquals(1, mGroups.size());
+        assertSame("s", mSessions.get(0));
+        assertEquals(0, mAssembler.getPendingCount());
+    }
+
+}
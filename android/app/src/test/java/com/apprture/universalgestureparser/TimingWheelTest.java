@@ -0,0 +1,113 @@
+/*
+ *
+ * Copyright 2014 by Herb Jellinek.  All rights reserved.
+ *
+ */
+package com.apprture.universalgestureparser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of {@link com.apprture.universalgestureparser.TimingWheel}.
+ *
+ * @author Herb Jellinek
+ */
+public class TimingWheelTest {
+
+    /**
+     * A timeout that counts how often it expires.
+     */
+    private static class CountingTimeout extends TimingWheel.Timeout {
+
+        private int mExpiries;
+
+        @Override
+        protected void expire(long now) {
+            mExpiries++;
+        }
+
+    }
+
+    @Test
+    public void expiresAtDeadlineAndNotBefore() {
+        TimingWheel wheel = new TimingWheel(8, 10, 0);
+        CountingTimeout timeout = new CountingTimeout();
+        wheel.schedule(timeout, 105);
+
+        wheel.advance(109);
+        assertEquals(0, timeout.mExpiries);
+        assertTrue(timeout.isScheduled());
+
+        wheel.advance(110);
+        assertEquals(1, timeout.mExpiries);
+        assertFalse(timeout.isScheduled());
+    }
+
+    @Test
+    public void cancelledTimeoutDoesNotExpire() {
+        TimingWheel wheel = new TimingWheel(8, 10, 0);
+        CountingTimeout timeout = new CountingTimeout();
+        wheel.schedule(timeout, 50);
+        wheel.cancel(timeout);
+
+        wheel.advance(1000);
+        assertEquals(0, timeout.mExpiries);
+    }
+
+    @Test
+    public void deadlineMoreThanOneTurnAwayWaitsForItsTurn() {
+        TimingWheel wheel = new TimingWheel(8, 10, 0);
+        CountingTimeout timeout = new CountingTimeout();
+        // 100 ticks away, so its slot comes round a dozen times first
+        wheel.schedule(timeout, 1000);
+
+        wheel.advance(990);
+        assertEquals(0, timeout.mExpiries);
+
+        wheel.advance(1000);
+        assertEquals(1, timeout.mExpiries);
+    }
+
+    @Test
+    public void skipsIdleTurns() {
+        TimingWheel wheel = new TimingWheel(8, 10, 0);
+        CountingTimeout early = new CountingTimeout();
+        CountingTimeout late = new CountingTimeout();
+        wheel.schedule(early, 50);
+        wheel.schedule(late, 1000000000000L);
+
+        // a jump of 10^14 ticks must only visit each slot about once
+        wheel.advance(1000000000000000L);
+        assertEquals(1, early.mExpiries);
+        assertEquals(1, late.mExpiries);
+    }
+
+    @Test
+    public void timeoutMayRescheduleItself() {
+        final TimingWheel wheel = new TimingWheel(8, 10, 0);
+        final CountingTimeout other = new CountingTimeout();
+        TimingWheel.Timeout repeating = new CountingTimeout() {
+            @Override
+            protected void expire(long now) {
+                super.expire(now);
+                // same slot, a full turn later
+                wheel.schedule(this, now + 80);
+            }
+        };
+        wheel.schedule(repeating, 10);
+        wheel.schedule(other, 10);
+
+        wheel.advance(10);
+        assertEquals(1, ((CountingTimeout)repeating).mExpiries);
+        assertEquals(1, other.mExpiries);
+        assertTrue(repeating.isScheduled());
+
+        wheel.advance(90);
+        assertEquals(2, ((CountingTimeout)repeating).mExpiries);
+    }
+
+}